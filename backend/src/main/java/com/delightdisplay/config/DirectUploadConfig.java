@@ -0,0 +1,20 @@
+package com.delightdisplay.config;
+
+import com.delightdisplay.controller.DirectUploadServlet;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class DirectUploadConfig {
+    // A path mapping beats the DispatcherServlet's default mapping, so these requests never reach MVC
+    @Bean
+    public ServletRegistrationBean<DirectUploadServlet> directUploadServletRegistration(DirectUploadServlet servlet) {
+        ServletRegistrationBean<DirectUploadServlet> registration =
+                new ServletRegistrationBean<>(servlet, DirectUploadServlet.PATH_PREFIX + "*");
+        registration.setName("directUploadServlet");
+        registration.setAsyncSupported(true);
+        registration.setLoadOnStartup(1);
+        return registration;
+    }
+}
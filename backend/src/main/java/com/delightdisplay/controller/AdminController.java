@@ -4,14 +4,22 @@ import com.delightdisplay.dto.*;
 import com.delightdisplay.entity.Order;
 import com.delightdisplay.entity.User;
 import com.delightdisplay.service.*;
+import com.delightdisplay.service.housekeeping.OrphanUploadCollector;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.InputStream;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -21,18 +29,88 @@ public class AdminController {
     private final UserService userService;
     private final OrderService orderService;
     private final DashboardService dashboardService;
+    private final DashboardSnapshotService dashboardSnapshotService;
+    private final CustomerAnalyticsService customerAnalyticsService;
+    private final TimeSeriesService timeSeriesService;
+    private final UserImportService userImportService;
+    private final OrphanUploadCollector orphanUploadCollector;
+    private final UploadLayoutMigrationService uploadLayoutMigrationService;
 
     // Dashboard
     @GetMapping("/dashboard")
     @Operation(summary = "Get dashboard statistics")
     public ResponseEntity<DashboardStatsDto> getDashboardStats() {
-        return ResponseEntity.ok(dashboardService.getStats());
+        return ResponseEntity.ok(dashboardSnapshotService.getSnapshot().getStats());
+    }
+
+    @GetMapping("/dashboard/snapshot")
+    @Operation(summary = "Get the latest dashboard snapshot with its computation time")
+    public ResponseEntity<DashboardSnapshotDto> getDashboardSnapshot() {
+        return ResponseEntity.ok(dashboardSnapshotService.getSnapshot());
+    }
+
+    @GetMapping(value = "/dashboard/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream dashboard snapshots as server-sent events")
+    public SseEmitter streamDashboard() {
+        return dashboardSnapshotService.subscribe();
     }
 
     @GetMapping("/analytics")
     @Operation(summary = "Get analytics data for charts")
-    public ResponseEntity<AnalyticsDto> getAnalytics(@RequestParam(defaultValue = "30") int days) {
-        return ResponseEntity.ok(dashboardService.getAnalytics(days));
+    public ResponseEntity<AnalyticsDto> getAnalytics(
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(defaultValue = "false") boolean approx) {
+        return ResponseEntity.ok(dashboardService.getAnalytics(days, approx));
+    }
+
+    @GetMapping("/analytics/timeseries")
+    @Operation(summary = "Get order and revenue time series as parallel arrays")
+    public ResponseEntity<TimeSeriesDto> getTimeSeries(
+            @RequestParam(defaultValue = "DAY") TimeSeriesDto.Granularity bucket,
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(defaultValue = "200") int points) {
+        return ResponseEntity.ok(timeSeriesService.getTimeSeries(bucket, days, points));
+    }
+
+    @GetMapping("/analytics/customers")
+    @Operation(summary = "Get per-customer lifetime value, ordered by revenue by default")
+    public ResponseEntity<Page<CustomerStatsDto>> getCustomerStats(
+            @PageableDefault(size = 20, sort = "revenue", direction = Sort.Direction.DESC) Pageable pageable) {
+        return ResponseEntity.ok(customerAnalyticsService.getCustomerStats(pageable));
+    }
+
+    @GetMapping("/analytics/customers/{userId}")
+    @Operation(summary = "Get lifetime value for one customer")
+    public ResponseEntity<CustomerStatsDto> getCustomerStats(@PathVariable Long userId) {
+        return ResponseEntity.ok(customerAnalyticsService.getCustomerStats(userId));
+    }
+
+    @GetMapping("/analytics/cohorts")
+    @Operation(summary = "Get monthly cohort retention")
+    public ResponseEntity<List<CohortDto>> getCohorts() {
+        return ResponseEntity.ok(customerAnalyticsService.getCohorts());
+    }
+
+    @PostMapping("/analytics/customers/refresh")
+    @Operation(summary = "Recompute customer analytics for orders changed since the last watermark (full=true rebuilds)")
+    public ResponseEntity<CustomerAnalyticsRunDto> refreshCustomerAnalytics(
+            @RequestParam(defaultValue = "false") boolean full) {
+        return ResponseEntity.ok(customerAnalyticsService.run(full));
+    }
+
+    // Uploads
+    @PostMapping("/uploads/gc")
+    @Operation(summary = "Delete uploaded files no longer referenced (dryRun=true only reports them)")
+    public ResponseEntity<OrphanUploadReportDto> collectOrphanUploads(
+            @RequestParam(defaultValue = "true") boolean dryRun) {
+        return ResponseEntity.ok(orphanUploadCollector.collect(dryRun));
+    }
+
+    @PostMapping("/uploads/migrate-layout")
+    @Operation(summary = "Move flat-layout uploads into sharded directories (dryRun=true only counts them)")
+    public ResponseEntity<UploadLayoutMigrationReportDto> migrateUploadLayout(
+            @RequestParam(defaultValue = "true") boolean dryRun) {
+        return ResponseEntity.ok(uploadLayoutMigrationService.migrate(dryRun));
     }
 
     // User Management
@@ -42,6 +120,19 @@ public class AdminController {
         return ResponseEntity.ok(userService.getAllUsers(pageable));
     }
 
+    @PostMapping(value = "/users/import", consumes = { "text/csv", "application/x-ndjson" })
+    @Operation(summary = "Bulk import users from a streamed CSV (header: email,password,name[,phone,address]) "
+            + "or NDJSON body")
+    public ResponseEntity<UserImportResultDto> importUsers(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @RequestParam(defaultValue = "false") boolean sendWelcomeEmails,
+            InputStream body) {
+        UserImportService.Format format = contentType.startsWith("text/csv")
+                ? UserImportService.Format.CSV
+                : UserImportService.Format.NDJSON;
+        return ResponseEntity.ok(userImportService.importUsers(body, format, sendWelcomeEmails));
+    }
+
     @GetMapping("/users/{id}")
     @Operation(summary = "Get user by ID")
     public ResponseEntity<UserDto> getUserById(@PathVariable Long id) {
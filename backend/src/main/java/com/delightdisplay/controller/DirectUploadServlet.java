@@ -0,0 +1,210 @@
+package com.delightdisplay.controller;
+
+import com.delightdisplay.dto.UploadedFileDto;
+import com.delightdisplay.exception.BadRequestException;
+import com.delightdisplay.exception.GlobalExceptionHandler.ErrorResponse;
+import com.delightdisplay.exception.TooManyRequestsException;
+import com.delightdisplay.security.UploadTicketService;
+import com.delightdisplay.service.FileStorageService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Receives {@code PUT /api/files/direct/<ticket>} bodies issued by
+ * {@link FileController#issueUploadTicket}. Registered as its own async servlet rather than an
+ * MVC handler: the body is read with a non-blocking {@link ReadListener}, so a slow client holds
+ * no container thread while its bytes trickle in, and publishing runs on the batch upload pool.
+ * The read timeout is scheduled here rather than on the {@link AsyncContext}, so it stops
+ * counting once the body is in and cannot answer 408 for an upload that is being published.
+ */
+@Component
+@Slf4j
+public class DirectUploadServlet extends HttpServlet {
+    public static final String PATH_PREFIX = "/api/files/direct/";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final transient UploadTicketService uploadTicketService;
+    private final transient FileStorageService fileStorageService;
+    private final transient ObjectMapper objectMapper;
+    private final transient TaskScheduler taskScheduler;
+    private final Duration timeout;
+
+    public DirectUploadServlet(UploadTicketService uploadTicketService, FileStorageService fileStorageService,
+            ObjectMapper objectMapper, TaskScheduler taskScheduler,
+            @Value("${app.upload.tickets.read-timeout:2m}") Duration timeout) {
+        this.uploadTicketService = uploadTicketService;
+        this.fileStorageService = fileStorageService;
+        this.objectMapper = objectMapper;
+        this.taskScheduler = taskScheduler;
+        this.timeout = timeout;
+    }
+
+    @Override
+    protected void doPut(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // Tomcat's non-blocking chunked decoding is unreliable, and browsers always send a length
+        // for File bodies; checked before redeeming so the ticket is not spent
+        if (request.getContentLengthLong() < 0) {
+            writeError(response, HttpStatus.LENGTH_REQUIRED, "Content-Length is required");
+            return;
+        }
+        String ticket = request.getPathInfo() != null ? request.getPathInfo().substring(1) : null;
+        FileStorageService.StagedUpload upload;
+        try {
+            UploadTicketService.UploadTicket redeemed = uploadTicketService.redeem(ticket);
+            upload = fileStorageService.stage(redeemed.subDir(), request.getContentLengthLong());
+            log.debug("Direct upload to {} for user {}", redeemed.subDir(), redeemed.userId());
+        } catch (BadRequestException e) {
+            writeError(response, HttpStatus.BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        AsyncContext async = request.startAsync();
+        async.setTimeout(0);
+        AtomicBoolean finished = new AtomicBoolean();
+        // Cleared by whichever comes first: the end of the body, which hands the upload to publish,
+        // or a failure while reading, which discards it
+        AtomicBoolean reading = new AtomicBoolean(true);
+        ScheduledFuture<?> readTimeout = taskScheduler.schedule(
+                () -> abort(async, finished, reading, upload, HttpStatus.REQUEST_TIMEOUT, "Upload timed out"),
+                Instant.now().plus(timeout));
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                readTimeout.cancel(false);
+                abort(async, finished, reading, upload, HttpStatus.BAD_REQUEST, "Upload failed");
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+
+        ServletInputStream in = request.getInputStream();
+        in.setReadListener(new ReadListener() {
+            private final byte[] buffer = new byte[BUFFER_SIZE];
+
+            @Override
+            public void onDataAvailable() throws IOException {
+                try {
+                    while (in.isReady() && !in.isFinished()) {
+                        int read = in.read(buffer);
+                        if (read > 0) {
+                            upload.write(buffer, 0, read);
+                        }
+                    }
+                } catch (BadRequestException e) {
+                    readTimeout.cancel(false);
+                    abort(async, finished, reading, upload, HttpStatus.BAD_REQUEST, e.getMessage());
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                readTimeout.cancel(false);
+                if (!reading.compareAndSet(true, false)) {
+                    return;
+                }
+                fileStorageService.publishImageAsync(upload).whenComplete((file, error) -> {
+                    if (error == null) {
+                        complete(async, finished, file);
+                    } else {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        if (cause instanceof TooManyRequestsException) {
+                            fail(async, finished, upload, HttpStatus.TOO_MANY_REQUESTS, cause.getMessage());
+                        } else if (cause instanceof BadRequestException) {
+                            fail(async, finished, upload, HttpStatus.BAD_REQUEST, cause.getMessage());
+                        } else {
+                            log.error("Direct upload failed", cause);
+                            fail(async, finished, upload, HttpStatus.INTERNAL_SERVER_ERROR,
+                                    "An unexpected error occurred");
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                log.debug("Direct upload aborted: {}", t.getMessage());
+                readTimeout.cancel(false);
+                abort(async, finished, reading, upload, HttpStatus.BAD_REQUEST, "Upload failed");
+            }
+        });
+    }
+
+    private void complete(AsyncContext async, AtomicBoolean finished, UploadedFileDto file) {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        HttpServletResponse response = (HttpServletResponse) async.getResponse();
+        try {
+            response.setStatus(HttpServletResponse.SC_CREATED);
+            response.setHeader(HttpHeaders.LOCATION, file.getUrl());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), file);
+        } catch (IOException e) {
+            log.debug("Could not send direct upload response: {}", e.getMessage());
+        } finally {
+            async.complete();
+        }
+    }
+
+    // Failures while the body is still arriving; once publish has the upload, its outcome decides the response
+    private void abort(AsyncContext async, AtomicBoolean finished, AtomicBoolean reading,
+            FileStorageService.StagedUpload upload, HttpStatus status, String message) {
+        if (reading.compareAndSet(true, false)) {
+            fail(async, finished, upload, status, message);
+        }
+    }
+
+    private void fail(AsyncContext async, AtomicBoolean finished, FileStorageService.StagedUpload upload,
+            HttpStatus status, String message) {
+        upload.close();
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            writeError((HttpServletResponse) async.getResponse(), status, message);
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Could not send direct upload error: {}", e.getMessage());
+        } finally {
+            async.complete();
+        }
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                new ErrorResponse(status.value(), message, LocalDateTime.now()));
+    }
+}
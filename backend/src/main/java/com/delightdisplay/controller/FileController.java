@@ -1,13 +1,24 @@
 package com.delightdisplay.controller;
 
+import com.delightdisplay.dto.BatchUploadResultDto;
+import com.delightdisplay.dto.UploadTicketDto;
+import com.delightdisplay.dto.UploadedFileDto;
+import com.delightdisplay.exception.BadRequestException;
+import com.delightdisplay.security.UploadTicketService;
 import com.delightdisplay.service.FileStorageService;
+import com.delightdisplay.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -15,27 +26,63 @@ import java.util.Map;
 @RequiredArgsConstructor
 @Tag(name = "Files", description = "File upload endpoints")
 public class FileController {
+    private static final Map<String, String> UPLOAD_DIRECTORIES = Map.of(
+            "product", "products", "category", "categories", "avatar", "avatars");
+
     private final FileStorageService fileStorageService;
+    private final UploadTicketService uploadTicketService;
+    private final UserService userService;
+
+    @Value("${app.upload.max-size:5242880}")
+    private long maxFileSize;
 
     @PostMapping("/upload/product")
     @Operation(summary = "Upload product image")
-    public ResponseEntity<Map<String, String>> uploadProductImage(@RequestParam("file") MultipartFile file) {
-        String url = fileStorageService.storeFile(file, "products");
-        return ResponseEntity.ok(Map.of("url", url));
+    public ResponseEntity<UploadedFileDto> uploadProductImage(@RequestParam("file") MultipartFile file) {
+        return ResponseEntity.ok(fileStorageService.storeImage(file, "products"));
     }
 
     @PostMapping("/upload/category")
     @Operation(summary = "Upload category image")
-    public ResponseEntity<Map<String, String>> uploadCategoryImage(@RequestParam("file") MultipartFile file) {
-        String url = fileStorageService.storeFile(file, "categories");
-        return ResponseEntity.ok(Map.of("url", url));
+    public ResponseEntity<UploadedFileDto> uploadCategoryImage(@RequestParam("file") MultipartFile file) {
+        return ResponseEntity.ok(fileStorageService.storeImage(file, "categories"));
     }
 
     @PostMapping("/upload/avatar")
     @Operation(summary = "Upload user avatar")
-    public ResponseEntity<Map<String, String>> uploadAvatar(@RequestParam("file") MultipartFile file) {
-        String url = fileStorageService.storeFile(file, "avatars");
-        return ResponseEntity.ok(Map.of("url", url));
+    public ResponseEntity<UploadedFileDto> uploadAvatar(@RequestParam("file") MultipartFile file) {
+        return ResponseEntity.ok(fileStorageService.storeImage(file, "avatars"));
+    }
+
+    @PostMapping("/upload/{type}/batch")
+    @Operation(summary = "Upload several images in one request (type: product, category or avatar)")
+    public ResponseEntity<BatchUploadResultDto> uploadImages(
+            @PathVariable String type,
+            @RequestParam("files") List<MultipartFile> files) {
+        return ResponseEntity.ok(fileStorageService.storeImages(files, uploadDirectory(type)));
+    }
+
+    @PostMapping(value = "/stream/{type}", consumes = { "image/jpeg", "image/png", "image/gif", "image/webp" })
+    @Operation(summary = "Upload an image as the raw request body (type: product, category or avatar)")
+    public ResponseEntity<UploadedFileDto> streamImage(
+            @PathVariable String type,
+            @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength,
+            InputStream body) {
+        return ResponseEntity.ok(fileStorageService.storeImage(body, contentLength != null ? contentLength : -1,
+                uploadDirectory(type)));
+    }
+
+    @PostMapping("/tickets/{type}")
+    @Operation(summary = "Issue a short-lived, single-use URL the client can PUT one image to "
+            + "(type: product, category or avatar)")
+    public ResponseEntity<UploadTicketDto> issueUploadTicket(@PathVariable String type) {
+        Instant expiresAt = Instant.now().plus(uploadTicketService.getTtl());
+        String ticket = uploadTicketService.issue(uploadDirectory(type), userService.getCurrentUserId(), expiresAt);
+        return ResponseEntity.ok(UploadTicketDto.builder()
+                .uploadUrl(DirectUploadServlet.PATH_PREFIX + ticket)
+                .expiresAt(expiresAt)
+                .maxSize(maxFileSize)
+                .build());
     }
 
     @DeleteMapping
@@ -44,4 +91,12 @@ public class FileController {
         fileStorageService.deleteFile(path);
         return ResponseEntity.noContent().build();
     }
+
+    private static String uploadDirectory(String type) {
+        String subDir = UPLOAD_DIRECTORIES.get(type);
+        if (subDir == null) {
+            throw new BadRequestException("Unknown upload type: " + type);
+        }
+        return subDir;
+    }
 }
@@ -0,0 +1,177 @@
+package com.delightdisplay.controller;
+
+import com.delightdisplay.service.ImageServingService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Serves uploaded images. From local storage, large bodies are handed to Tomcat's sendfile so
+ * the kernel copies them straight from the page cache to the socket; smaller ones, and
+ * containers without sendfile, go through {@link FileChannel#transferTo}. Remote storage is
+ * streamed through. Supports single byte ranges and conditional requests.
+ */
+@RestController
+@Tag(name = "Files", description = "File upload endpoints")
+public class ImageController {
+    private static final String PREFIX = "/uploads/";
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final ImageServingService imageServingService;
+    private final String cacheControl;
+    private final long sendfileThreshold;
+
+    public ImageController(
+            ImageServingService imageServingService,
+            @Value("${app.upload.cache-max-age:365d}") Duration cacheMaxAge,
+            @Value("${app.upload.serving.sendfile-threshold:48KB}") DataSize sendfileThreshold) {
+        this.imageServingService = imageServingService;
+        // Uploads are named by content hash (older ones by random UUID) and never rewritten in place,
+        // so clients may cache them indefinitely
+        this.cacheControl = CacheControl.maxAge(cacheMaxAge).cachePublic().immutable().getHeaderValue();
+        this.sendfileThreshold = sendfileThreshold.toBytes();
+    }
+
+    @GetMapping(PREFIX + "**")
+    @Operation(summary = "Serve an uploaded image")
+    public void serve(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String relativePath = UriUtils.decode(
+                request.getRequestURI().substring(request.getContextPath().length() + PREFIX.length()),
+                StandardCharsets.UTF_8);
+        if (imageServingService.variesByAccept(relativePath)) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        ImageServingService.ServedFile file = imageServingService
+                .resolve(relativePath, request.getHeader(HttpHeaders.ACCEPT))
+                .orElse(null);
+        if (file == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // Sets ETag and Last-Modified, and answers 304 when the client's copy is current
+        if (new ServletWebRequest(request, response).checkNotModified(file.etag(), file.lastModified())) {
+            return;
+        }
+        response.setContentType(file.contentType());
+
+        long length = file.length();
+        long start = 0;
+        long end = length - 1;
+        List<HttpRange> ranges = parseRanges(request, file);
+        // Multi-range requests are rare for images and are answered with the whole body
+        if (ranges.size() == 1) {
+            try {
+                start = ranges.get(0).getRangeStart(length);
+                end = ranges.get(0).getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                start = length;
+            }
+            if (start >= length || start > end) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if (count == 0 || "HEAD".equals(request.getMethod())) {
+            return;
+        }
+        if (file.path() == null) {
+            stream(file, start, end, response);
+            return;
+        }
+        if (count >= sendfileThreshold && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.path().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        transfer(file, start, count, response);
+    }
+
+    private void transfer(ImageServingService.ServedFile file, long start, long count, HttpServletResponse response)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file.path(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        } catch (NoSuchFileException e) {
+            notFound(file, response);
+        }
+    }
+
+    // Remote backends: the byte range is requested from the store and streamed through
+    private void stream(ImageServingService.ServedFile file, long start, long end, HttpServletResponse response)
+            throws IOException {
+        try (InputStream in = imageServingService.open(file, start, end)) {
+            in.transferTo(response.getOutputStream());
+        } catch (NoSuchFileException e) {
+            notFound(file, response);
+        }
+    }
+
+    // Deleted since it was resolved
+    private void notFound(ImageServingService.ServedFile file, HttpServletResponse response) {
+        imageServingService.evict(file.key());
+        if (!response.isCommitted()) {
+            response.reset();
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+
+    // Honors If-Range: a range is only applied while the client's validator still matches
+    private static List<HttpRange> parseRanges(HttpServletRequest request, ImageServingService.ServedFile file) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range == null) {
+            return List.of();
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(file.etag())) {
+            return List.of();
+        }
+        try {
+            return HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+}
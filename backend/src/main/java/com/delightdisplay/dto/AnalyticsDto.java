@@ -13,6 +13,8 @@ public class AnalyticsDto {
     private List<CategorySales> categorySales;
     private List<TopProduct> topProducts;
     private OrderStatusBreakdown orderStatusBreakdown;
+    private boolean approximate;
+    private Long uniqueBuyers;
 
     @Data
     @Builder
@@ -20,6 +22,7 @@ public class AnalyticsDto {
         private String date;
         private long orders;
         private BigDecimal revenue;
+        private Long uniqueBuyers;
     }
 
     @Data
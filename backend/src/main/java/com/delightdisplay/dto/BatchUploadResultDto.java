@@ -0,0 +1,25 @@
+package com.delightdisplay.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BatchUploadResultDto {
+    // One entry per part, in request order
+    private List<Item> files;
+    private int succeeded;
+    private int failed;
+
+    @Data
+    @Builder
+    public static class Item {
+        private int index;
+        private String filename;
+        // Null when this file failed
+        private UploadedFileDto file;
+        private String error;
+    }
+}
@@ -0,0 +1,14 @@
+package com.delightdisplay.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import java.time.LocalDate;
+
+@Data
+@Builder
+public class CohortDto {
+    private LocalDate cohortMonth;
+    private long customers;
+    // activeCustomers[k] = customers of this cohort who ordered k months after their first order
+    private long[] activeCustomers;
+}
@@ -0,0 +1,16 @@
+package com.delightdisplay.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class CustomerAnalyticsRunDto {
+    private boolean full;
+    private long processedOrders;
+    private int customersUpdated;
+    private LocalDateTime watermark;
+    private long durationMs;
+}
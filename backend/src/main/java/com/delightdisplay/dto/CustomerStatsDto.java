@@ -0,0 +1,40 @@
+package com.delightdisplay.dto;
+
+import com.delightdisplay.entity.CustomerStats;
+import com.delightdisplay.entity.User;
+import lombok.Data;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+public class CustomerStatsDto {
+    private String userId;
+    private String email;
+    private String name;
+    private long orderCount;
+    private BigDecimal revenue;
+    private BigDecimal averageOrderValue;
+    private LocalDateTime firstOrderAt;
+    private LocalDateTime lastOrderAt;
+    private LocalDate cohortMonth;
+
+    public static CustomerStatsDto fromEntity(CustomerStats stats, User user) {
+        CustomerStatsDto dto = new CustomerStatsDto();
+        dto.setUserId(String.valueOf(stats.getUserId()));
+        if (user != null) {
+            dto.setEmail(user.getEmail());
+            dto.setName(user.getName());
+        }
+        dto.setOrderCount(stats.getOrderCount());
+        dto.setRevenue(stats.getRevenue());
+        dto.setAverageOrderValue(stats.getOrderCount() > 0
+                ? stats.getRevenue().divide(BigDecimal.valueOf(stats.getOrderCount()), 2, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO);
+        dto.setFirstOrderAt(stats.getFirstOrderAt());
+        dto.setLastOrderAt(stats.getLastOrderAt());
+        dto.setCohortMonth(stats.getCohortMonth());
+        return dto;
+    }
+}
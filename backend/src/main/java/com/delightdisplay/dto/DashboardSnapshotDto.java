@@ -0,0 +1,13 @@
+package com.delightdisplay.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class DashboardSnapshotDto {
+    private DashboardStatsDto stats;
+    private LocalDateTime computedAt;
+}
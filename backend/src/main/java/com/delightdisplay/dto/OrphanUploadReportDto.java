@@ -0,0 +1,20 @@
+package com.delightdisplay.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class OrphanUploadReportDto {
+    private boolean dryRun;
+    private long scanned;
+    private long referenced;
+    private long orphaned;
+    private long orphanedBytes;
+    private long deleted;
+    // First orphaned keys found, capped at app.upload.gc.report-limit
+    private List<String> sample;
+    private long durationMs;
+}
@@ -0,0 +1,20 @@
+package com.delightdisplay.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+public class TimeSeriesDto {
+    private Granularity bucket;
+    private int bucketsPerPoint;
+    private long[] timestamps;
+    private long[] orders;
+    private BigDecimal[] revenue;
+
+    public enum Granularity {
+        HOUR, DAY, WEEK, MONTH
+    }
+}
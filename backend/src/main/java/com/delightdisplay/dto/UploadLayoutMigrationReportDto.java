@@ -0,0 +1,17 @@
+package com.delightdisplay.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class UploadLayoutMigrationReportDto {
+    private boolean dryRun;
+    private long scanned;
+    // Files still in the flat layout when the run started
+    private long legacy;
+    private long moved;
+    private long referencesUpdated;
+    private long failed;
+    private long durationMs;
+}
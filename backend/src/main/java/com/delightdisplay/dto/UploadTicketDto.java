@@ -0,0 +1,15 @@
+package com.delightdisplay.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@Builder
+public class UploadTicketDto {
+    // PUT the raw image bytes here; the ticket in the URL is the only credential needed
+    private String uploadUrl;
+    private Instant expiresAt;
+    private long maxSize;
+}
@@ -0,0 +1,16 @@
+package com.delightdisplay.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@Builder
+public class UploadedFileDto {
+    private String url;
+    // Resized derivatives by variant name (thumb, card, detail); empty for formats that are not resized
+    private Map<String, String> variants;
+    private Integer width;
+    private Integer height;
+}
@@ -0,0 +1,19 @@
+package com.delightdisplay.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class UserImportResultDto {
+    private long rows;
+    private long imported;
+    private long duplicates;
+    private long invalid;
+    // First problems encountered, as "line N: reason"
+    private List<String> errors;
+    private boolean welcomeEmailsQueued;
+    private long durationMs;
+}
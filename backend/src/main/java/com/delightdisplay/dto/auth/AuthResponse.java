@@ -11,6 +11,9 @@ public class AuthResponse {
     private String token;
     @Builder.Default
     private String type = "Bearer";
+    private String refreshToken;
+    // Access token lifetime in seconds
+    private long expiresIn;
     private String id;
     private String email;
     private String name;
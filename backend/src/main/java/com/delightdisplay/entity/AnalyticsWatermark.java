@@ -0,0 +1,23 @@
+package com.delightdisplay.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "analytics_watermarks")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AnalyticsWatermark {
+    @Id
+    private String jobName;
+
+    private LocalDateTime lastOrderUpdatedAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,33 @@
+package com.delightdisplay.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "cohort_retention")
+@IdClass(CohortRetention.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CohortRetention {
+    @Id
+    private LocalDate cohortMonth;
+
+    @Id
+    private int monthOffset;
+
+    @Column(nullable = false)
+    private long activeCustomers;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate cohortMonth;
+        private int monthOffset;
+    }
+}
@@ -0,0 +1,30 @@
+package com.delightdisplay.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "customer_monthly_activity")
+@IdClass(CustomerMonthlyActivity.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CustomerMonthlyActivity {
+    @Id
+    private Long userId;
+
+    @Id
+    private LocalDate activityMonth;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private LocalDate activityMonth;
+    }
+}
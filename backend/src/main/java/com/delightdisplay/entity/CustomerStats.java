@@ -0,0 +1,41 @@
+package com.delightdisplay.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "customer_stats", indexes = {
+        @Index(name = "idx_customer_stats_revenue", columnList = "revenue"),
+        @Index(name = "idx_customer_stats_cohort", columnList = "cohort_month")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CustomerStats {
+    @Id
+    private Long userId;
+
+    @Column(nullable = false)
+    private long orderCount;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(nullable = false)
+    private LocalDateTime firstOrderAt;
+
+    @Column(nullable = false)
+    private LocalDateTime lastOrderAt;
+
+    @Column(name = "cohort_month", nullable = false)
+    private LocalDate cohortMonth;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
@@ -5,7 +5,7 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "password_reset_tokens")
+@Table(name = "password_reset_tokens", indexes = @Index(name = "idx_password_reset_tokens_expires", columnList = "expiresAt"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,23 @@
+package com.delightdisplay.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "revoked_tokens", indexes = @Index(name = "idx_revoked_tokens_expires", columnList = "expiresAt"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RevokedToken {
+    // jti of the revoked access token
+    @Id
+    @Column(length = 36)
+    private String tokenId;
+
+    // Revocation only matters until the token would have expired anyway
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,39 @@
+package com.delightdisplay.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import java.time.LocalDateTime;
+
+/**
+ * A content-addressed upload. Identical bytes uploaded to the same directory share one file;
+ * {@code refCount} counts the uploads still pointing at it.
+ */
+@Entity
+@Table(name = "stored_files")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StoredFile {
+    // Path relative to the upload directory, e.g. products/<sha256>.jpg
+    @Id
+    @Column(length = 512)
+    private String path;
+
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(nullable = false)
+    private int refCount;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    // Bumped on every acquire so the orphan collector treats freshly deduplicated files as new
+    private LocalDateTime lastUsedAt;
+}
@@ -42,6 +42,11 @@ public class User {
     @Builder.Default
     private boolean enabled = true;
 
+    // Bumped whenever issued tokens must stop working (role, email or password change, disable)
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    @Builder.Default
+    private int tokenVersion = 0;
+
     @OneToOne(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
     private Cart cart;
 
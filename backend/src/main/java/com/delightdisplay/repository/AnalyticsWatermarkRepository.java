@@ -0,0 +1,7 @@
+package com.delightdisplay.repository;
+
+import com.delightdisplay.entity.AnalyticsWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface AnalyticsWatermarkRepository extends JpaRepository<AnalyticsWatermark, String> {
+}
@@ -0,0 +1,9 @@
+package com.delightdisplay.repository;
+
+import com.delightdisplay.entity.CohortRetention;
+import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.List;
+
+public interface CohortRetentionRepository extends JpaRepository<CohortRetention, CohortRetention.Key> {
+    List<CohortRetention> findAllByOrderByCohortMonthAscMonthOffsetAsc();
+}
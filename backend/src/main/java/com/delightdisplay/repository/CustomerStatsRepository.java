@@ -0,0 +1,7 @@
+package com.delightdisplay.repository;
+
+import com.delightdisplay.entity.CustomerStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface CustomerStatsRepository extends JpaRepository<CustomerStats, Long> {
+}
@@ -0,0 +1,39 @@
+package com.delightdisplay.repository;
+
+import com.delightdisplay.entity.OrderHourlyStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OrderHourlyStatRepository extends JpaRepository<OrderHourlyStat, LocalDateTime> {
+        List<OrderHourlyStat> findByBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStart(
+                        LocalDateTime from, LocalDateTime to);
+
+        @Modifying
+        @Query(value = "INSERT INTO order_stats_hourly (bucket_start, order_count, revenue) " +
+                        "VALUES (:bucketStart, :orders, :amount) " +
+                        "ON CONFLICT (bucket_start) DO UPDATE SET " +
+                        "order_count = order_stats_hourly.order_count + EXCLUDED.order_count, " +
+                        "revenue = order_stats_hourly.revenue + EXCLUDED.revenue", nativeQuery = true)
+        void recordOrders(LocalDateTime bucketStart, long orders, BigDecimal amount);
+
+        @Modifying
+        @Query(value = "INSERT INTO order_stats_hourly (bucket_start, order_count, revenue) " +
+                        "SELECT date_trunc('hour', created_at), COUNT(*), COALESCE(SUM(total_amount), 0) " +
+                        "FROM orders GROUP BY date_trunc('hour', created_at) " +
+                        "ON CONFLICT (bucket_start) DO UPDATE SET " +
+                        "order_count = EXCLUDED.order_count, revenue = EXCLUDED.revenue", nativeQuery = true)
+        int rebuildFromOrders();
+
+        @Modifying
+        @Query(value = "INSERT INTO order_stats_hourly (bucket_start, order_count, revenue) " +
+                        "SELECT date_trunc('hour', created_at), COUNT(*), COALESCE(SUM(total_amount), 0) " +
+                        "FROM orders WHERE created_at >= :from GROUP BY date_trunc('hour', created_at) " +
+                        "ON CONFLICT (bucket_start) DO UPDATE SET " +
+                        "order_count = EXCLUDED.order_count, revenue = EXCLUDED.revenue", nativeQuery = true)
+        int rebuildFromOrdersSince(LocalDateTime from);
+}
@@ -41,7 +41,7 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
         List<Object[]> getDailyOrderStats(LocalDateTime startDate);
 
         @Query("SELECT c.name, COUNT(oi) as count, COALESCE(SUM(oi.price * oi.quantity), 0) as revenue " +
-                        "FROM OrderItem oi JOIN oi.product p JOIN p.category c " +
+                        "FROM OrderItem oi JOIN oi.product p LEFT JOIN p.category c " +
                         "WHERE oi.order.createdAt >= :startDate GROUP BY c.name ORDER BY revenue DESC")
         List<Object[]> getSalesByCategory(LocalDateTime startDate);
 
@@ -49,4 +49,9 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
                         "FROM OrderItem oi JOIN oi.product p " +
                         "WHERE oi.order.createdAt >= :startDate GROUP BY p.id, p.name ORDER BY totalSold DESC")
         List<Object[]> getTopSellingProducts(LocalDateTime startDate, Pageable pageable);
+
+        @Query("SELECT o.createdAt, o.user.id, p.id, c.name, oi.quantity, oi.price " +
+                        "FROM OrderItem oi JOIN oi.order o JOIN oi.product p LEFT JOIN p.category c " +
+                        "WHERE o.createdAt >= :startDate")
+        List<Object[]> getOrderItemFacts(LocalDateTime startDate);
 }
@@ -14,5 +14,11 @@ public interface PasswordResetTokenRepository extends JpaRepository<PasswordRese
     @Query("DELETE FROM PasswordResetToken t WHERE t.expiresAt < :now")
     void deleteExpiredTokens(LocalDateTime now);
 
+    @Modifying
+    @Query(value = "DELETE FROM password_reset_tokens WHERE id IN (" +
+            "SELECT id FROM password_reset_tokens WHERE expires_at < :now OR used = true LIMIT :limit)",
+            nativeQuery = true)
+    int deleteExpiredOrUsedBatch(LocalDateTime now, int limit);
+
     void deleteByUserId(Long userId);
 }
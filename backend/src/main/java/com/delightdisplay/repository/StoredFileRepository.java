@@ -0,0 +1,31 @@
+package com.delightdisplay.repository;
+
+import com.delightdisplay.entity.StoredFile;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Optional;
+
+public interface StoredFileRepository extends JpaRepository<StoredFile, String> {
+    // Upsert; the row lock it takes serializes against a concurrent release of the same path
+    @Modifying
+    @Query(value = "INSERT INTO stored_files (path, sha256, size, ref_count, created_at, last_used_at) " +
+            "VALUES (:path, :sha256, :size, 1, now(), now()) " +
+            "ON CONFLICT (path) DO UPDATE SET ref_count = stored_files.ref_count + 1, last_used_at = now()", nativeQuery = true)
+    int acquire(String path, String sha256, long size);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM StoredFile f WHERE f.path = :path")
+    Optional<StoredFile> lockByPath(String path);
+
+    @Modifying
+    @Query("UPDATE StoredFile f SET f.refCount = f.refCount - 1 WHERE f.path = :path AND f.refCount > 0")
+    int release(String path);
+
+    @Modifying
+    @Query("DELETE FROM StoredFile f WHERE f.path = :path AND f.refCount <= 0")
+    int deleteIfUnreferenced(String path);
+}
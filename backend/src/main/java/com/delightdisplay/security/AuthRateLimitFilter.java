@@ -0,0 +1,182 @@
+package com.delightdisplay.security;
+
+import com.delightdisplay.exception.GlobalExceptionHandler.ErrorResponse;
+import com.delightdisplay.util.TokenBucket;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throttles credential endpoints under {@code /api/auth} per client IP and per submitted email
+ * before any user lookup or password hashing happens.
+ */
+@Component
+@Slf4j
+public class AuthRateLimitFilter extends OncePerRequestFilter {
+    private static final String AUTH_PATH = "/api/auth/";
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int ipCapacity;
+    private final Duration ipRefillPeriod;
+    private final int emailCapacity;
+    private final Duration emailRefillPeriod;
+    private final Cache<String, TokenBucket> ipBuckets;
+    private final Cache<String, TokenBucket> emailBuckets;
+
+    public AuthRateLimitFilter(
+            ObjectMapper objectMapper,
+            @Value("${app.security.rate-limit.enabled:true}") boolean enabled,
+            @Value("${app.security.rate-limit.ip.capacity:20}") int ipCapacity,
+            @Value("${app.security.rate-limit.ip.refill-period:1m}") Duration ipRefillPeriod,
+            @Value("${app.security.rate-limit.email.capacity:5}") int emailCapacity,
+            @Value("${app.security.rate-limit.email.refill-period:5m}") Duration emailRefillPeriod,
+            @Value("${app.security.rate-limit.max-keys:100000}") long maxKeys) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.ipCapacity = ipCapacity;
+        this.ipRefillPeriod = ipRefillPeriod;
+        this.emailCapacity = emailCapacity;
+        this.emailRefillPeriod = emailRefillPeriod;
+        // An idle bucket is full again after one refill period, so it can be dropped
+        this.ipBuckets = Caffeine.newBuilder()
+                .expireAfterAccess(ipRefillPeriod)
+                .maximumSize(maxKeys)
+                .build();
+        this.emailBuckets = Caffeine.newBuilder()
+                .expireAfterAccess(emailRefillPeriod)
+                .maximumSize(maxKeys)
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !enabled
+                || !"POST".equals(request.getMethod())
+                || !path.startsWith(AUTH_PATH)
+                || path.equals(AUTH_PATH + "logout");
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        long waitNanos = ipBuckets.get(request.getRemoteAddr(), k -> new TokenBucket(ipCapacity, ipRefillPeriod))
+                .tryConsume();
+        if (waitNanos > 0) {
+            reject(request, response, waitNanos);
+            return;
+        }
+
+        CachedBodyRequest wrapped = new CachedBodyRequest(request);
+        String email = extractEmail(wrapped.body);
+        if (email != null) {
+            waitNanos = emailBuckets.get(email, k -> new TokenBucket(emailCapacity, emailRefillPeriod))
+                    .tryConsume();
+            if (waitNanos > 0) {
+                reject(request, response, waitNanos);
+                return;
+            }
+        }
+        filterChain.doFilter(wrapped, response);
+    }
+
+    private String extractEmail(byte[] body) {
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            JsonNode email = objectMapper.readTree(body).get("email");
+            return email != null && email.isTextual() ? email.asText().trim().toLowerCase(Locale.ROOT) : null;
+        } catch (IOException e) {
+            // Malformed bodies are rejected by the controller; only the IP bucket applies
+            return null;
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, long waitNanos)
+            throws IOException {
+        log.warn("Rate limited {} from {}", request.getRequestURI(), request.getRemoteAddr());
+        long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResponse(HttpStatus.TOO_MANY_REQUESTS.value(),
+                "Too many attempts, please try again later", LocalDateTime.now()));
+    }
+
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            // Auth payloads are tiny; anything larger is truncated and fails JSON binding downstream
+            this.body = request.getInputStream().readNBytes(MAX_BODY_BYTES);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
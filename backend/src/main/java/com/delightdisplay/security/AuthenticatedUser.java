@@ -0,0 +1,96 @@
+package com.delightdisplay.security;
+
+import com.delightdisplay.entity.User;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal placed in the security context by {@link JwtAuthenticationFilter}. Built either from
+ * the token claims alone (id, email, role) or from a snapshot of the user's scalar columns (never
+ * the password hash), so services can resolve the current user without another query.
+ */
+@Getter
+public class AuthenticatedUser implements UserDetails {
+    private final Long id;
+    private final String email;
+    private final String name;
+    private final String phone;
+    private final String address;
+    private final String avatar;
+    private final User.Role role;
+    private final boolean enabled;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+    private final List<GrantedAuthority> authorities;
+    private final boolean profileLoaded;
+
+    public AuthenticatedUser(Long id, String email, User.Role role) {
+        this.id = id;
+        this.email = email;
+        this.name = null;
+        this.phone = null;
+        this.address = null;
+        this.avatar = null;
+        this.role = role;
+        this.enabled = true;
+        this.createdAt = null;
+        this.updatedAt = null;
+        this.authorities = List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+        this.profileLoaded = false;
+    }
+
+    public AuthenticatedUser(User user) {
+        this.id = user.getId();
+        this.email = user.getEmail();
+        this.name = user.getName();
+        this.phone = user.getPhone();
+        this.address = user.getAddress();
+        this.avatar = user.getAvatar();
+        this.role = user.getRole();
+        this.enabled = user.isEnabled();
+        this.createdAt = user.getCreatedAt();
+        this.updatedAt = user.getUpdatedAt();
+        this.authorities = List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+        this.profileLoaded = true;
+    }
+
+    /**
+     * Returns a new detached {@link User} carrying the snapshot. It is safe to use as an
+     * association target or for reads; lazy collections are not available.
+     */
+    public User toUser() {
+        return User.builder()
+                .id(id)
+                .email(email)
+                .name(name)
+                .phone(phone)
+                .address(address)
+                .avatar(avatar)
+                .role(role)
+                .enabled(enabled)
+                .createdAt(createdAt)
+                .updatedAt(updatedAt)
+                .build();
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+}
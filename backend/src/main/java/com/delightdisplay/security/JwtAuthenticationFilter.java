@@ -1,5 +1,7 @@
 package com.delightdisplay.security;
 
+import com.delightdisplay.entity.User;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,8 +10,6 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -19,7 +19,9 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final TokenRevocationIndex tokenRevocationIndex;
 
     @Override
     protected void doFilterInternal(
@@ -37,14 +39,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         jwt = authHeader.substring(7);
         try {
-            userEmail = jwtService.extractUsername(jwt);
-            if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+            Claims claims = jwtService.validateToken(jwt);
+            userEmail = claims.getSubject();
+            boolean revoked = claims.getId() != null && tokenRevocationIndex.isRevoked(claims.getId());
+            if (!revoked && userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                AuthenticatedUser principal = resolvePrincipal(claims);
+                if (principal != null && principal.isEnabled() && jwtService.isTokenValid(claims, principal)) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
+                            principal,
                             null,
-                            userDetails.getAuthorities());
+                            principal.getAuthorities());
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
                 }
@@ -54,4 +58,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
+
+    private AuthenticatedUser resolvePrincipal(Claims claims) {
+        Long userId = claims.get(JwtService.CLAIM_USER_ID, Long.class);
+        if (userId == null) {
+            // Tokens issued before user claims were embedded
+            return principalCache.get(claims.getSubject());
+        }
+        Integer version = claims.get(JwtService.CLAIM_TOKEN_VERSION, Integer.class);
+        if (version == null || !tokenVersionRegistry.isCurrent(userId, version)) {
+            return null;
+        }
+        return new AuthenticatedUser(userId, claims.getSubject(),
+                User.Role.valueOf(claims.get(JwtService.CLAIM_ROLE, String.class)));
+    }
 }
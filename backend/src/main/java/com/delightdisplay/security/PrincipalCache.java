@@ -0,0 +1,65 @@
+package com.delightdisplay.security;
+
+import com.delightdisplay.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Bounded, short-lived cache of {@link AuthenticatedUser} keyed by email, so authenticating a
+ * request does not query the users table every time.
+ */
+@Component
+@Slf4j
+public class PrincipalCache {
+    private final UserRepository userRepository;
+    private final Cache<String, AuthenticatedUser> principals;
+
+    public PrincipalCache(
+            UserRepository userRepository,
+            @Value("${app.security.principal-cache.ttl:60s}") Duration ttl,
+            @Value("${app.security.principal-cache.max-size:10000}") long maxSize) {
+        this.userRepository = userRepository;
+        this.principals = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * Returns the principal for the email, loading it on a miss, or null if no such user exists.
+     */
+    public AuthenticatedUser get(String email) {
+        return principals.get(email, key -> userRepository.findByEmail(key)
+                .map(AuthenticatedUser::new)
+                .orElse(null));
+    }
+
+    /**
+     * Drops the cached principal of a user now and again once the surrounding transaction
+     * commits, so a request racing the update cannot re-cache the old row.
+     */
+    public void evict(Long userId) {
+        evictNow(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(userId);
+                }
+            });
+        }
+    }
+
+    private void evictNow(Long userId) {
+        if (principals.asMap().values().removeIf(principal -> principal.getId().equals(userId))) {
+            log.debug("Evicted cached principal for user {}", userId);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.delightdisplay.security;
+
+import com.delightdisplay.entity.RevokedToken;
+import com.delightdisplay.repository.RevokedTokenRepository;
+import com.delightdisplay.util.BloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked access-token ids (jti), persisted in {@code revoked_tokens} and mirrored in memory as a
+ * Bloom filter in front of an exact set. Nearly every lookup is answered by the filter alone;
+ * neither path allocates or touches the database. Rows from other instances are picked up on
+ * the periodic reload.
+ */
+@Component
+@Slf4j
+public class TokenRevocationIndex {
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final int expectedRevocations;
+
+    private volatile State state;
+
+    public TokenRevocationIndex(
+            RevokedTokenRepository revokedTokenRepository,
+            @Value("${app.security.revocation.expected-size:100000}") int expectedRevocations) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedRevocations = expectedRevocations;
+        this.state = new State(new BloomFilter(expectedRevocations, 0.01), new ConcurrentHashMap<>());
+    }
+
+    public boolean isRevoked(String tokenId) {
+        State current = state;
+        return current.filter().mightContain(tokenId) && current.revoked().containsKey(tokenId);
+    }
+
+    @Transactional
+    public void revoke(String tokenId, Date expiresAt) {
+        LocalDateTime expiry = LocalDateTime.ofInstant(expiresAt.toInstant(), ZoneId.systemDefault());
+        revokedTokenRepository.save(RevokedToken.builder().tokenId(tokenId).expiresAt(expiry).build());
+        synchronized (this) {
+            State current = state;
+            current.revoked().put(tokenId, expiry);
+            current.filter().add(tokenId);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.security.revocation.refresh-interval:60000}",
+            initialDelayString = "${app.security.revocation.refresh-interval:60000}")
+    @Transactional
+    public void reload() {
+        LocalDateTime now = LocalDateTime.now();
+        int purged = revokedTokenRepository.deleteExpiredTokens(now);
+        Map<String, LocalDateTime> revoked = new ConcurrentHashMap<>();
+        revokedTokenRepository.findByExpiresAtAfter(now)
+                .forEach(token -> revoked.put(token.getTokenId(), token.getExpiresAt()));
+
+        synchronized (this) {
+            // Keep local revocations whose rows are not visible yet
+            state.revoked().forEach((tokenId, expiry) -> {
+                if (expiry.isAfter(now)) {
+                    revoked.putIfAbsent(tokenId, expiry);
+                }
+            });
+            BloomFilter filter = new BloomFilter(Math.max(expectedRevocations, revoked.size() * 2), 0.01);
+            revoked.keySet().forEach(filter::add);
+            state = new State(filter, revoked);
+        }
+        log.debug("Revocation index reloaded: {} active, {} expired rows purged", revoked.size(), purged);
+    }
+
+    private record State(BloomFilter filter, Map<String, LocalDateTime> revoked) {
+    }
+}
@@ -0,0 +1,119 @@
+package com.delightdisplay.security;
+
+import com.delightdisplay.entity.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of every user's token version, used to reject tokens that were issued before
+ * a role, credential or status change without reading the users table per request.
+ * <p>
+ * The bulk of the state is a sorted {@code long[]}/{@code int[]} snapshot reloaded periodically;
+ * changes made by this instance are applied to a small overlay as soon as they commit.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TokenVersionRegistry {
+    private static final int DELETED = -1;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, Change> changes = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot;
+
+    public boolean isCurrent(long userId, int version) {
+        Change change = changes.get(userId);
+        if (change != null) {
+            return change.version() == version;
+        }
+        Snapshot current = snapshot();
+        int index = Arrays.binarySearch(current.ids(), 0, current.size(), userId);
+        if (index >= 0) {
+            return current.versions()[index] == version;
+        }
+        // Users registered after the snapshot was taken still have their initial version
+        return userId > current.maxId() && version == 0;
+    }
+
+    /**
+     * Increments the user's token version so every token issued so far is rejected. The caller
+     * persists the entity; the in-memory view follows once the transaction commits.
+     */
+    public void revoke(User user) {
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        record(user.getId(), user.getTokenVersion());
+    }
+
+    public void removed(Long userId) {
+        record(userId, DELETED);
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.token-versions.refresh-interval:30000}",
+            initialDelayString = "${app.security.token-versions.refresh-interval:30000}")
+    public void refresh() {
+        long startedAt = System.nanoTime();
+        Snapshot loaded = load();
+        snapshot = loaded;
+        changes.values().removeIf(change -> change.recordedAt() < startedAt);
+        log.debug("Loaded token versions for {} users", loaded.size());
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    refresh();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private Snapshot load() {
+        long[][] ids = { new long[1024] };
+        int[][] versions = { new int[1024] };
+        int[] size = { 0 };
+        jdbcTemplate.query("SELECT id, token_version FROM users ORDER BY id", rs -> {
+            if (size[0] == ids[0].length) {
+                ids[0] = Arrays.copyOf(ids[0], size[0] * 2);
+                versions[0] = Arrays.copyOf(versions[0], size[0] * 2);
+            }
+            ids[0][size[0]] = rs.getLong(1);
+            versions[0][size[0]] = rs.getInt(2);
+            size[0]++;
+        });
+        long maxId = size[0] > 0 ? ids[0][size[0] - 1] : 0;
+        return new Snapshot(ids[0], versions[0], size[0], maxId);
+    }
+
+    private void record(Long userId, int version) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    changes.put(userId, new Change(version, System.nanoTime()));
+                }
+            });
+        } else {
+            changes.put(userId, new Change(version, System.nanoTime()));
+        }
+    }
+
+    private record Snapshot(long[] ids, int[] versions, int size, long maxId) {
+    }
+
+    private record Change(int version, long recordedAt) {
+    }
+}
@@ -0,0 +1,124 @@
+package com.delightdisplay.security;
+
+import com.delightdisplay.exception.BadRequestException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Issues and redeems short-lived, single-use upload tickets: {@code <payload>.<signature>},
+ * both base64url, where the payload names the target directory, the issuing user and the
+ * expiry, and the signature is an HMAC-SHA256 under a key derived from {@code jwt.secret}.
+ * The derived key keeps tickets and JWTs from ever verifying as each other.
+ */
+@Service
+public class UploadTicketService {
+    private static final String VERSION = "u1";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public record UploadTicket(String subDir, Long userId, Instant expiresAt) {
+    }
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Value("${jwt.secret}")
+    private String secret;
+
+    @Value("${app.upload.tickets.ttl:5m}")
+    private Duration ttl;
+
+    @Value("${app.upload.tickets.max-outstanding:100000}")
+    private long maxOutstanding;
+
+    private SecretKeySpec signingKey;
+
+    // Nonces of redeemed tickets, kept until the ticket would have expired anyway. Per instance:
+    // behind a load balancer a ticket can be replayed at most once per instance, and a replay
+    // only adds a reference to the same content
+    private Cache<String, Boolean> redeemed;
+
+    @PostConstruct
+    void init() throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        signingKey = new SecretKeySpec(mac.doFinal("upload-ticket".getBytes(StandardCharsets.UTF_8)), "HmacSHA256");
+        redeemed = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxOutstanding)
+                .build();
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public String issue(String subDir, Long userId, Instant expiresAt) {
+        byte[] nonce = new byte[16];
+        random.nextBytes(nonce);
+        String payload = String.join(":", VERSION, subDir, String.valueOf(userId),
+                String.valueOf(expiresAt.getEpochSecond()), ENCODER.encodeToString(nonce));
+        String encoded = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return encoded + "." + ENCODER.encodeToString(sign(encoded));
+    }
+
+    /**
+     * Verifies a ticket and marks it used.
+     *
+     * @throws BadRequestException if the ticket is malformed, tampered with, expired or already used
+     */
+    public UploadTicket redeem(String token) {
+        int dot = token != null ? token.indexOf('.') : -1;
+        if (dot <= 0) {
+            throw invalid();
+        }
+        String encoded = token.substring(0, dot);
+        byte[] signature;
+        String[] fields;
+        try {
+            signature = DECODER.decode(token.substring(dot + 1));
+            fields = new String(DECODER.decode(encoded), StandardCharsets.UTF_8).split(":");
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+        if (!MessageDigest.isEqual(sign(encoded), signature) || fields.length != 5 || !VERSION.equals(fields[0])) {
+            throw invalid();
+        }
+
+        // Signed by us, so the numeric fields are well formed
+        Instant expiresAt = Instant.ofEpochSecond(Long.parseLong(fields[3]));
+        if (Instant.now().isAfter(expiresAt)) {
+            throw new BadRequestException("Upload ticket has expired");
+        }
+        if (redeemed.asMap().putIfAbsent(fields[4], Boolean.TRUE) != null) {
+            throw new BadRequestException("Upload ticket has already been used");
+        }
+        return new UploadTicket(fields[1], Long.valueOf(fields[2]), expiresAt);
+    }
+
+    private byte[] sign(String encodedPayload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(signingKey);
+            return mac.doFinal(encodedPayload.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private static BadRequestException invalid() {
+        return new BadRequestException("Invalid upload ticket");
+    }
+}
@@ -6,22 +6,26 @@ import com.delightdisplay.entity.PasswordResetToken;
 import com.delightdisplay.entity.User;
 import com.delightdisplay.entity.Wishlist;
 import com.delightdisplay.exception.BadRequestException;
+import com.delightdisplay.exception.TooManyRequestsException;
 import com.delightdisplay.repository.CartRepository;
 import com.delightdisplay.repository.PasswordResetTokenRepository;
 import com.delightdisplay.repository.UserRepository;
 import com.delightdisplay.repository.WishlistRepository;
 import com.delightdisplay.security.JwtService;
+import com.delightdisplay.security.TokenRevocationIndex;
+import com.delightdisplay.security.TokenVersionRegistry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
@@ -32,9 +36,13 @@ public class AuthService {
         private final PasswordResetTokenRepository passwordResetTokenRepository;
         private final PasswordEncoder passwordEncoder;
         private final JwtService jwtService;
-        private final AuthenticationManager authenticationManager;
-        private final UserDetailsService userDetailsService;
+        private final TokenVersionRegistry tokenVersionRegistry;
+        private final TokenRevocationIndex tokenRevocationIndex;
+        private final RefreshTokenService refreshTokenService;
         private final EmailService emailService;
+        private final MeterRegistry meterRegistry;
+
+        private volatile String dummyPasswordHash;
 
         @Transactional
         public AuthResponse register(RegisterRequest request) {
@@ -42,9 +50,10 @@ public class AuthService {
                         throw new BadRequestException("Email already registered");
                 }
 
+                String passwordHash = timed("register", "hash", () -> passwordEncoder.encode(request.getPassword()));
                 User user = User.builder()
                                 .email(request.getEmail())
-                                .password(passwordEncoder.encode(request.getPassword()))
+                                .password(passwordHash)
                                 .name(request.getName())
                                 .phone(request.getPhone())
                                 .address(request.getAddress())
@@ -65,43 +74,59 @@ public class AuthService {
                 // Send welcome email
                 emailService.sendWelcomeEmail(user);
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(user.getEmail());
-                String token = jwtService.generateToken(userDetails);
-
-                return AuthResponse.builder()
-                                .token(token)
-                                .type("Bearer")
-                                .id(String.valueOf(user.getId()))
-                                .email(user.getEmail())
-                                .name(user.getName())
-                                .avatar(user.getAvatar())
-                                .role(user.getRole().name())
-                                .build();
+                User registered = user;
+                return timed("register", "sign", () -> buildAuthResponse(registered));
         }
 
+        // Not transactional: no connection is held while the password hash is checked
         public AuthResponse login(LoginRequest request) {
-                authenticationManager.authenticate(
-                                new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword()));
-
-                User user = userRepository.findByEmail(request.getEmail())
-                                .orElseThrow(() -> new BadRequestException("User not found"));
-
+                User user = timed("login", "lookup", () -> userRepository.findByEmail(request.getEmail()).orElse(null));
+
+                boolean matches = timed("login", "hash", () -> {
+                        if (user == null) {
+                                // Unknown emails still pay for one hash so timing does not reveal which accounts exist
+                                passwordEncoder.matches(request.getPassword(), dummyPasswordHash());
+                                return false;
+                        }
+                        return passwordEncoder.matches(request.getPassword(), user.getPassword());
+                });
+                if (!matches) {
+                        throw new BadCredentialsException("Invalid email or password");
+                }
                 if (!user.isEnabled()) {
                         throw new BadRequestException("Account is disabled");
                 }
+                if (passwordEncoder.upgradeEncoding(user.getPassword())) {
+                        try {
+                                userRepository.updatePassword(user.getEmail(), passwordEncoder.encode(request.getPassword()));
+                        } catch (TooManyRequestsException e) {
+                                // Credentials are already verified; the rehash is retried on the next login
+                        }
+                }
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(user.getEmail());
-                String token = jwtService.generateToken(userDetails);
+                return timed("login", "sign", () -> buildAuthResponse(user));
+        }
 
-                return AuthResponse.builder()
-                                .token(token)
-                                .type("Bearer")
-                                .id(String.valueOf(user.getId()))
-                                .email(user.getEmail())
-                                .name(user.getName())
-                                .avatar(user.getAvatar())
-                                .role(user.getRole().name())
-                                .build();
+        // Not transactional: a rejected reuse must still commit the revocation done by consume
+        public AuthResponse refresh(RefreshTokenRequest request) {
+                return buildAuthResponse(refreshTokenService.consume(request.getRefreshToken()));
+        }
+
+        @Transactional
+        public void logout(String accessToken, String refreshToken) {
+                if (accessToken != null) {
+                        try {
+                                Claims claims = jwtService.validateToken(accessToken);
+                                if (claims.getId() != null) {
+                                        tokenRevocationIndex.revoke(claims.getId(), claims.getExpiration());
+                                }
+                        } catch (JwtException e) {
+                                // Already invalid, nothing to revoke
+                        }
+                }
+                if (refreshToken != null) {
+                        refreshTokenService.revoke(refreshToken);
+                }
         }
 
         @Transactional
@@ -141,9 +166,38 @@ public class AuthService {
 
                 User user = resetToken.getUser();
                 user.setPassword(passwordEncoder.encode(request.getPassword()));
+                tokenVersionRegistry.revoke(user);
                 userRepository.save(user);
+                refreshTokenService.revokeAll(user.getId());
 
                 resetToken.setUsed(true);
                 passwordResetTokenRepository.save(resetToken);
         }
+
+        private String dummyPasswordHash() {
+                String hash = dummyPasswordHash;
+                if (hash == null) {
+                        hash = passwordEncoder.encode(UUID.randomUUID().toString());
+                        dummyPasswordHash = hash;
+                }
+                return hash;
+        }
+
+        private <T> T timed(String operation, String phase, Supplier<T> step) {
+                return meterRegistry.timer("auth." + operation, "phase", phase).record(step);
+        }
+
+        private AuthResponse buildAuthResponse(User user) {
+                return AuthResponse.builder()
+                                .token(jwtService.generateToken(user))
+                                .type("Bearer")
+                                .refreshToken(refreshTokenService.issue(user))
+                                .expiresIn(jwtService.getExpirationSeconds())
+                                .id(String.valueOf(user.getId()))
+                                .email(user.getEmail())
+                                .name(user.getName())
+                                .avatar(user.getAvatar())
+                                .role(user.getRole().name())
+                                .build();
+        }
 }
@@ -19,17 +19,17 @@ public class CartService {
     private final UserService userService;
 
     public CartDto getCart() {
-        User user = userService.getCurrentUser();
-        Cart cart = cartRepository.findByUserIdWithItems(user.getId())
-                .orElseGet(() -> createCartForUser(user));
+        Long userId = userService.getCurrentUserId();
+        Cart cart = cartRepository.findByUserIdWithItems(userId)
+                .orElseGet(() -> createCartForUser(userId));
         return CartDto.fromEntity(cart);
     }
 
     @Transactional
     public CartDto addToCart(CartItemDto dto) {
-        User user = userService.getCurrentUser();
-        Cart cart = cartRepository.findByUserId(user.getId())
-                .orElseGet(() -> createCartForUser(user));
+        Long userId = userService.getCurrentUserId();
+        Cart cart = cartRepository.findByUserId(userId)
+                .orElseGet(() -> createCartForUser(userId));
 
         Long productId = Long.parseLong(dto.getProductId());
         Product product = productRepository.findById(productId)
@@ -69,8 +69,8 @@ public class CartService {
 
     @Transactional
     public CartDto updateCartItem(String productId, int quantity) {
-        User user = userService.getCurrentUser();
-        Cart cart = cartRepository.findByUserId(user.getId())
+        Long userId = userService.getCurrentUserId();
+        Cart cart = cartRepository.findByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Cart not found"));
 
         Long prodId = Long.parseLong(productId);
@@ -92,8 +92,8 @@ public class CartService {
 
     @Transactional
     public CartDto removeFromCart(String productId) {
-        User user = userService.getCurrentUser();
-        Cart cart = cartRepository.findByUserId(user.getId())
+        Long userId = userService.getCurrentUserId();
+        Cart cart = cartRepository.findByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Cart not found"));
 
         Long prodId = Long.parseLong(productId);
@@ -103,15 +103,15 @@ public class CartService {
 
     @Transactional
     public void clearCart() {
-        User user = userService.getCurrentUser();
-        Cart cart = cartRepository.findByUserId(user.getId())
+        Long userId = userService.getCurrentUserId();
+        Cart cart = cartRepository.findByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Cart not found"));
         cart.getItems().clear();
         cartRepository.save(cart);
     }
 
-    private Cart createCartForUser(User user) {
-        Cart cart = Cart.builder().user(user).build();
+    private Cart createCartForUser(Long userId) {
+        Cart cart = Cart.builder().user(userService.getUserReference(userId)).build();
         return cartRepository.save(cart);
     }
 }
@@ -0,0 +1,333 @@
+package com.delightdisplay.service;
+
+import com.delightdisplay.config.ReportingQuery;
+import com.delightdisplay.dto.CohortDto;
+import com.delightdisplay.dto.CustomerAnalyticsRunDto;
+import com.delightdisplay.dto.CustomerStatsDto;
+import com.delightdisplay.entity.AnalyticsWatermark;
+import com.delightdisplay.entity.CohortRetention;
+import com.delightdisplay.entity.CustomerStats;
+import com.delightdisplay.entity.User;
+import com.delightdisplay.exception.BadRequestException;
+import com.delightdisplay.exception.ResourceNotFoundException;
+import com.delightdisplay.repository.AnalyticsWatermarkRepository;
+import com.delightdisplay.repository.CohortRetentionRepository;
+import com.delightdisplay.repository.CustomerStatsRepository;
+import com.delightdisplay.repository.UserRepository;
+import com.delightdisplay.util.LongHashMap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CustomerAnalyticsService {
+    private static final String JOB_NAME = "customer-analytics";
+    private static final long ADVISORY_LOCK_ID = 0x43_4C_56L;
+    private static final int PERSIST_CHUNK = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CustomerStatsRepository customerStatsRepository;
+    private final CohortRetentionRepository cohortRetentionRepository;
+    private final AnalyticsWatermarkRepository watermarkRepository;
+    private final UserRepository userRepository;
+
+    @Value("${app.analytics.customers.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${app.analytics.customers.rescan-window:15m}")
+    private Duration rescanWindow;
+
+    @Scheduled(cron = "${app.analytics.customers.cron:0 15 * * * *}")
+    @Transactional
+    public void scheduledRun() {
+        try {
+            CustomerAnalyticsRunDto result = run(false);
+            log.info("Customer analytics run processed {} orders for {} customers",
+                    result.getProcessedOrders(), result.getCustomersUpdated());
+        } catch (BadRequestException e) {
+            log.info("Skipping customer analytics run: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recomputes the stats of every customer with an order created or updated since the
+     * watermark, from all of that customer's paid, non-cancelled orders. Re-folding a customer
+     * is idempotent, so the scan re-reads a trailing window before the watermark: orders whose
+     * transaction committed late, or that were paid, cancelled or refunded after an earlier run,
+     * are picked up without double counting.
+     */
+    @Transactional
+    public CustomerAnalyticsRunDto run(boolean full) {
+        long started = System.currentTimeMillis();
+        Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class,
+                ADVISORY_LOCK_ID);
+        if (!Boolean.TRUE.equals(locked)) {
+            throw new BadRequestException("Customer analytics run already in progress");
+        }
+
+        if (full) {
+            jdbcTemplate.update("DELETE FROM customer_monthly_activity");
+            jdbcTemplate.update("DELETE FROM cohort_retention");
+            jdbcTemplate.update("DELETE FROM customer_stats");
+        }
+        AnalyticsWatermark watermark = watermarkRepository.findById(JOB_NAME)
+                .orElseGet(() -> AnalyticsWatermark.builder().jobName(JOB_NAME).build());
+        LocalDateTime since = full ? null : watermark.getLastOrderUpdatedAt() != null
+                ? watermark.getLastOrderUpdatedAt().minus(rescanWindow)
+                : null;
+
+        // Stream the changed customers in id order through a server-side cursor
+        long[][] userIds = { new long[1024] };
+        int[] userCount = { 0 };
+        LocalDateTime[] newest = { watermark.getLastOrderUpdatedAt() };
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT user_id, MAX(updated_at) FROM orders " +
+                            (since != null ? "WHERE updated_at > ? " : "") +
+                            "GROUP BY user_id ORDER BY user_id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            if (since != null) {
+                ps.setTimestamp(1, Timestamp.valueOf(since));
+            }
+            return ps;
+        }, (ResultSet rs) -> {
+            if (userCount[0] == userIds[0].length) {
+                userIds[0] = Arrays.copyOf(userIds[0], userCount[0] * 2);
+            }
+            userIds[0][userCount[0]++] = rs.getLong(1);
+            Timestamp updatedAt = rs.getTimestamp(2);
+            if (updatedAt != null && (newest[0] == null || updatedAt.toLocalDateTime().isAfter(newest[0]))) {
+                newest[0] = updatedAt.toLocalDateTime();
+            }
+        });
+
+        LongHashMap<long[]> cohortDeltas = new LongHashMap<>();
+        long processedOrders = 0;
+        for (int from = 0; from < userCount[0]; from += PERSIST_CHUNK) {
+            long[] chunk = Arrays.copyOfRange(userIds[0], from, Math.min(from + PERSIST_CHUNK, userCount[0]));
+            processedOrders += refreshCustomers(chunk, cohortDeltas);
+        }
+        if (!cohortDeltas.isEmpty()) {
+            persistCohorts(cohortDeltas);
+        }
+
+        watermark.setLastOrderUpdatedAt(newest[0]);
+        watermarkRepository.save(watermark);
+
+        return CustomerAnalyticsRunDto.builder()
+                .full(full)
+                .processedOrders(processedOrders)
+                .customersUpdated(userCount[0])
+                .watermark(newest[0])
+                .durationMs(System.currentTimeMillis() - started)
+                .build();
+    }
+
+    @ReportingQuery
+    public Page<CustomerStatsDto> getCustomerStats(Pageable pageable) {
+        Page<CustomerStats> page = customerStatsRepository.findAll(pageable);
+        Map<Long, User> users = userRepository.findAllById(page.map(CustomerStats::getUserId).getContent())
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return new PageImpl<>(
+                page.getContent().stream()
+                        .map(stats -> CustomerStatsDto.fromEntity(stats, users.get(stats.getUserId())))
+                        .collect(Collectors.toList()),
+                pageable, page.getTotalElements());
+    }
+
+    @ReportingQuery
+    public CustomerStatsDto getCustomerStats(Long userId) {
+        CustomerStats stats = customerStatsRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("No order history for user"));
+        return CustomerStatsDto.fromEntity(stats, userRepository.findById(userId).orElse(null));
+    }
+
+    @ReportingQuery
+    public List<CohortDto> getCohorts() {
+        Map<LocalDate, List<CohortRetention>> byCohort = cohortRetentionRepository
+                .findAllByOrderByCohortMonthAscMonthOffsetAsc().stream()
+                .collect(Collectors.groupingBy(CohortRetention::getCohortMonth, LinkedHashMap::new,
+                        Collectors.toList()));
+        List<CohortDto> result = new ArrayList<>(byCohort.size());
+        byCohort.forEach((month, rows) -> {
+            long[] active = new long[rows.get(rows.size() - 1).getMonthOffset() + 1];
+            rows.forEach(row -> active[row.getMonthOffset()] = row.getActiveCustomers());
+            result.add(CohortDto.builder()
+                    .cohortMonth(month)
+                    .customers(active[0])
+                    .activeCustomers(active)
+                    .build());
+        });
+        return result;
+    }
+
+    private long refreshCustomers(long[] chunk, LongHashMap<long[]> cohortDeltas) {
+        Long[] boxedIds = Arrays.stream(chunk).boxed().toArray(Long[]::new);
+
+        LongHashMap<Aggregate> aggregates = new LongHashMap<>(chunk.length);
+        long[] processed = { 0 };
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT user_id, total_amount, created_at FROM orders WHERE user_id = ANY(?) " +
+                            "AND payment_status = 'COMPLETED' AND status <> 'CANCELLED'");
+            ps.setArray(1, con.createArrayOf("bigint", boxedIds));
+            return ps;
+        }, (ResultSet rs) -> {
+            aggregates.computeIfAbsent(rs.getLong(1), id -> new Aggregate())
+                    .add(rs.getBigDecimal(2), rs.getTimestamp(3).toLocalDateTime());
+            processed[0]++;
+        });
+
+        // Take back what these customers contributed to the cohort counters before re-adding it
+        Map<Long, CustomerStats> existing = customerStatsRepository.findAllById(Arrays.asList(boxedIds)).stream()
+                .collect(Collectors.toMap(CustomerStats::getUserId, Function.identity()));
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT user_id, activity_month FROM customer_monthly_activity WHERE user_id = ANY(?)");
+            ps.setArray(1, con.createArrayOf("bigint", boxedIds));
+            return ps;
+        }, (ResultSet rs) -> {
+            CustomerStats stats = existing.get(rs.getLong(1));
+            if (stats != null) {
+                addCohortDelta(cohortDeltas, monthIndex(stats.getCohortMonth()),
+                        monthIndex(rs.getDate(2).toLocalDate()), -1);
+            }
+        });
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "DELETE FROM customer_monthly_activity WHERE user_id = ANY(?)");
+            ps.setArray(1, con.createArrayOf("bigint", boxedIds));
+            return ps;
+        });
+
+        List<Object[]> statsRows = new ArrayList<>(chunk.length);
+        List<Object[]> activityRows = new ArrayList<>();
+        List<Object> goneIds = new ArrayList<>();
+        for (long userId : chunk) {
+            Aggregate aggregate = aggregates.get(userId);
+            if (aggregate == null) {
+                // Every order of this customer was cancelled, refunded or never paid
+                goneIds.add(userId);
+                continue;
+            }
+            int cohortIndex = monthIndex(aggregate.firstOrderAt.toLocalDate());
+            statsRows.add(new Object[] { userId, aggregate.orderCount, aggregate.revenue,
+                    Timestamp.valueOf(aggregate.firstOrderAt), Timestamp.valueOf(aggregate.lastOrderAt),
+                    Date.valueOf(monthStart(cohortIndex)) });
+            for (int i = 0; i < aggregate.monthCount; i++) {
+                activityRows.add(new Object[] { userId, Date.valueOf(monthStart(aggregate.months[i])) });
+                addCohortDelta(cohortDeltas, cohortIndex, aggregate.months[i], 1);
+            }
+        }
+
+        // Recomputed totals are written with one batched upsert rather than a merge per entity
+        if (!statsRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO customer_stats (user_id, order_count, revenue, first_order_at, last_order_at, " +
+                            "cohort_month, updated_at) VALUES (?, ?, ?, ?, ?, ?, now()) " +
+                            "ON CONFLICT (user_id) DO UPDATE SET order_count = EXCLUDED.order_count, " +
+                            "revenue = EXCLUDED.revenue, first_order_at = EXCLUDED.first_order_at, " +
+                            "last_order_at = EXCLUDED.last_order_at, cohort_month = EXCLUDED.cohort_month, " +
+                            "updated_at = EXCLUDED.updated_at",
+                    statsRows);
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO customer_monthly_activity (user_id, activity_month) VALUES (?, ?)",
+                    activityRows);
+        }
+        if (!goneIds.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM customer_stats WHERE user_id = ?",
+                    goneIds.stream().map(id -> new Object[] { id }).toList());
+        }
+        return processed[0];
+    }
+
+    private void persistCohorts(LongHashMap<long[]> cohortDeltas) {
+        List<Object[]> rows = new ArrayList<>(cohortDeltas.size());
+        cohortDeltas.forEach((key, delta) -> rows.add(new Object[] {
+                Date.valueOf(monthStart((int) (key >>> 16))), (int) (key & 0xFFFF), delta[0] }));
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO cohort_retention (cohort_month, month_offset, active_customers) VALUES (?, ?, ?) " +
+                        "ON CONFLICT (cohort_month, month_offset) DO UPDATE SET " +
+                        "active_customers = cohort_retention.active_customers + EXCLUDED.active_customers",
+                rows);
+        jdbcTemplate.update("DELETE FROM cohort_retention WHERE active_customers <= 0");
+    }
+
+    private static void addCohortDelta(LongHashMap<long[]> cohortDeltas, int cohortIndex, int month, int delta) {
+        int offset = month - cohortIndex;
+        if (offset >= 0) {
+            cohortDeltas.computeIfAbsent(cohortKey(cohortIndex, offset), k -> new long[1])[0] += delta;
+        }
+    }
+
+    private static long cohortKey(int cohortIndex, int offset) {
+        return ((long) cohortIndex << 16) | offset;
+    }
+
+    private static int monthIndex(LocalDate date) {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    private static LocalDate monthStart(int monthIndex) {
+        return LocalDate.of(monthIndex / 12, monthIndex % 12 + 1, 1);
+    }
+
+    private static final class Aggregate {
+        private long orderCount;
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private LocalDateTime firstOrderAt;
+        private LocalDateTime lastOrderAt;
+        private int[] months = new int[4];
+        private int monthCount;
+
+        private void add(BigDecimal amount, LocalDateTime createdAt) {
+            orderCount++;
+            if (amount != null) {
+                revenue = revenue.add(amount);
+            }
+            if (firstOrderAt == null || createdAt.isBefore(firstOrderAt)) {
+                firstOrderAt = createdAt;
+            }
+            if (lastOrderAt == null || createdAt.isAfter(lastOrderAt)) {
+                lastOrderAt = createdAt;
+            }
+            int month = monthIndex(createdAt.toLocalDate());
+            for (int i = 0; i < monthCount; i++) {
+                if (months[i] == month) {
+                    return;
+                }
+            }
+            if (monthCount == months.length) {
+                months = Arrays.copyOf(months, monthCount * 2);
+            }
+            months[monthCount++] = month;
+        }
+    }
+}
@@ -1,17 +1,22 @@
 package com.delightdisplay.service;
 
+import com.delightdisplay.config.ReportingQuery;
 import com.delightdisplay.dto.AnalyticsDto;
 import com.delightdisplay.dto.DashboardStatsDto;
 import com.delightdisplay.entity.Order;
+import com.delightdisplay.entity.Product;
 import com.delightdisplay.repository.*;
+import com.delightdisplay.util.SpaceSavingTopK;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,7 +25,9 @@ public class DashboardService {
     private final UserRepository userRepository;
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
+    private final SalesSketchService salesSketchService;
 
+    @ReportingQuery
     public DashboardStatsDto getStats() {
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime startOfDay = now.toLocalDate().atStartOfDay();
@@ -48,9 +55,9 @@ public class DashboardService {
                 .build();
     }
 
-    public AnalyticsDto getAnalytics(int days) {
+    @ReportingQuery
+    public AnalyticsDto getAnalytics(int days, boolean approx) {
         LocalDateTime startDate = LocalDateTime.now().minusDays(days);
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd");
 
         // Daily stats
         List<Object[]> dailyData = orderRepository.getDailyOrderStats(startDate);
@@ -62,24 +69,37 @@ public class DashboardService {
                         .build())
                 .collect(Collectors.toList());
 
-        // Category sales
-        List<Object[]> categoryData = orderRepository.getSalesByCategory(startDate);
-        List<AnalyticsDto.CategorySales> categorySales = categoryData.stream()
-                .map(row -> AnalyticsDto.CategorySales.builder()
-                        .category(row[0] != null ? row[0].toString() : "Unknown")
-                        .orders(row[1] != null ? ((Number) row[1]).longValue() : 0)
-                        .revenue(row[2] != null ? new BigDecimal(row[2].toString()) : BigDecimal.ZERO)
-                        .build())
-                .collect(Collectors.toList());
+        List<AnalyticsDto.CategorySales> categorySales;
+        List<AnalyticsDto.TopProduct> topProducts;
+        Long uniqueBuyers = null;
 
-        // Top products
-        List<Object[]> topData = orderRepository.getTopSellingProducts(startDate, PageRequest.of(0, 5));
-        List<AnalyticsDto.TopProduct> topProducts = topData.stream()
-                .map(row -> AnalyticsDto.TopProduct.builder()
-                        .name(row[0] != null ? row[0].toString() : "Unknown")
-                        .sold(row[1] != null ? ((Number) row[1]).longValue() : 0)
-                        .build())
-                .collect(Collectors.toList());
+        if (approx) {
+            SalesSketchService.Window window = salesSketchService.window(startDate.toLocalDate());
+            categorySales = approxCategorySales(window);
+            topProducts = approxTopProducts(window);
+            uniqueBuyers = window.buyers().estimate();
+            dailyStats.forEach(day -> day.setUniqueBuyers(
+                    window.dailyBuyers().getOrDefault(LocalDate.parse(day.getDate()), 0L)));
+        } else {
+            // Category sales
+            List<Object[]> categoryData = orderRepository.getSalesByCategory(startDate);
+            categorySales = categoryData.stream()
+                    .map(row -> AnalyticsDto.CategorySales.builder()
+                            .category(row[0] != null ? row[0].toString() : "Unknown")
+                            .orders(row[1] != null ? ((Number) row[1]).longValue() : 0)
+                            .revenue(row[2] != null ? new BigDecimal(row[2].toString()) : BigDecimal.ZERO)
+                            .build())
+                    .collect(Collectors.toList());
+
+            // Top products
+            List<Object[]> topData = orderRepository.getTopSellingProducts(startDate, PageRequest.of(0, 5));
+            topProducts = topData.stream()
+                    .map(row -> AnalyticsDto.TopProduct.builder()
+                            .name(row[0] != null ? row[0].toString() : "Unknown")
+                            .sold(row[1] != null ? ((Number) row[1]).longValue() : 0)
+                            .build())
+                    .collect(Collectors.toList());
+        }
 
         // Order status breakdown
         List<Order> pending = orderRepository.findByStatusIn(List.of(Order.OrderStatus.PENDING));
@@ -101,9 +121,37 @@ public class DashboardService {
                 .categorySales(categorySales)
                 .topProducts(topProducts)
                 .orderStatusBreakdown(statusBreakdown)
+                .approximate(approx)
+                .uniqueBuyers(uniqueBuyers)
                 .build();
     }
 
+    private List<AnalyticsDto.CategorySales> approxCategorySales(SalesSketchService.Window window) {
+        Map<String, Long> revenueCents = window.categoryRevenueCents().top(Integer.MAX_VALUE).stream()
+                .collect(Collectors.toMap(SpaceSavingTopK.Entry::key, SpaceSavingTopK.Entry::count));
+        return window.categoryItems().top(Integer.MAX_VALUE).stream()
+                .map(entry -> AnalyticsDto.CategorySales.builder()
+                        .category(entry.key())
+                        .orders(entry.count())
+                        .revenue(BigDecimal.valueOf(revenueCents.getOrDefault(entry.key(), 0L), 2))
+                        .build())
+                .sorted(Comparator.comparing(AnalyticsDto.CategorySales::getRevenue).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private List<AnalyticsDto.TopProduct> approxTopProducts(SalesSketchService.Window window) {
+        List<SpaceSavingTopK.Entry<Long>> top = window.products().top(5);
+        Map<Long, String> names = productRepository.findAllById(top.stream().map(SpaceSavingTopK.Entry::key).toList())
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Product::getName));
+        return top.stream()
+                .map(entry -> AnalyticsDto.TopProduct.builder()
+                        .name(names.getOrDefault(entry.key(), "Unknown"))
+                        .sold(entry.count())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
     private BigDecimal nullToZero(BigDecimal value) {
         return value != null ? value : BigDecimal.ZERO;
     }
@@ -0,0 +1,135 @@
+package com.delightdisplay.service;
+
+import com.delightdisplay.dto.DashboardSnapshotDto;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DashboardSnapshotService {
+    private final DashboardService dashboardService;
+
+    @Value("${app.dashboard.snapshot.order-event-threshold:20}")
+    private int orderEventThreshold;
+
+    @Value("${app.dashboard.snapshot.stream-timeout:1800000}")
+    private long streamTimeout;
+
+    private final AtomicReference<DashboardSnapshotDto> snapshot = new AtomicReference<>();
+    private final AtomicInteger pendingOrderEvents = new AtomicInteger();
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+    private final AtomicBoolean broadcastQueued = new AtomicBoolean();
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "dashboard-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public DashboardSnapshotDto getSnapshot() {
+        DashboardSnapshotDto current = snapshot.get();
+        return current != null ? current : refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${app.dashboard.snapshot.refresh-interval:60000}")
+    public void scheduledRefresh() {
+        refresh();
+    }
+
+    public void recordOrderEvent() {
+        if (pendingOrderEvents.incrementAndGet() < orderEventThreshold) {
+            return;
+        }
+        // Recompute only once the triggering transaction is visible to other connections
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    queueRefresh();
+                }
+            });
+        } else {
+            queueRefresh();
+        }
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(streamTimeout);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+        emitters.add(emitter);
+        send(emitter, getSnapshot());
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+        emitters.forEach(SseEmitter::complete);
+    }
+
+    private void queueRefresh() {
+        if (refreshQueued.compareAndSet(false, true)) {
+            refreshExecutor.execute(() -> {
+                refreshQueued.set(false);
+                refresh();
+            });
+        }
+    }
+
+    private synchronized DashboardSnapshotDto refresh() {
+        pendingOrderEvents.set(0);
+        try {
+            DashboardSnapshotDto fresh = new DashboardSnapshotDto(dashboardService.getStats(), LocalDateTime.now());
+            snapshot.set(fresh);
+            queueBroadcast();
+            return fresh;
+        } catch (RuntimeException e) {
+            log.error("Failed to refresh dashboard snapshot: {}", e.getMessage());
+            DashboardSnapshotDto previous = snapshot.get();
+            if (previous == null) {
+                throw e;
+            }
+            return previous;
+        }
+    }
+
+    // Sent off the lock, so a slow subscriber never holds up a refresh; a broadcast queued
+    // behind another only sends the latest snapshot
+    private void queueBroadcast() {
+        if (broadcastQueued.compareAndSet(false, true)) {
+            refreshExecutor.execute(() -> {
+                broadcastQueued.set(false);
+                DashboardSnapshotDto latest = snapshot.get();
+                emitters.forEach(emitter -> send(emitter, latest));
+            });
+        }
+    }
+
+    private void send(SseEmitter emitter, DashboardSnapshotDto data) {
+        try {
+            emitter.send(SseEmitter.event().name("dashboard").data(data));
+        } catch (IOException | IllegalStateException e) {
+            emitters.remove(emitter);
+        }
+    }
+}
@@ -10,6 +10,8 @@ import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -25,24 +27,29 @@ public class EmailService {
     @Async
     public void sendWelcomeEmail(User user) {
         try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(user.getEmail());
-            message.setSubject("Welcome to Delight Display Zone!");
-            message.setText(String.format(
-                "Hi %s,\n\n" +
-                "Welcome to Delight Display Zone! Your account has been created successfully.\n\n" +
-                "Start shopping now: %s\n\n" +
-                "Best regards,\nDelight Display Zone Team",
-                user.getName(), frontendUrl
-            ));
-            mailSender.send(message);
+            mailSender.send(buildWelcomeMessage(user));
             log.info("Welcome email sent to {}", user.getEmail());
         } catch (Exception e) {
             log.error("Failed to send welcome email to {}: {}", user.getEmail(), e.getMessage());
         }
     }
 
+    /**
+     * Sends welcome emails for a batch of users over a single mail session.
+     */
+    @Async
+    public void sendWelcomeEmails(List<User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        try {
+            mailSender.send(users.stream().map(this::buildWelcomeMessage).toArray(SimpleMailMessage[]::new));
+            log.info("Welcome emails sent to {} users", users.size());
+        } catch (Exception e) {
+            log.error("Failed to send {} welcome emails: {}", users.size(), e.getMessage());
+        }
+    }
+
     @Async
     public void sendPasswordResetEmail(User user, String resetToken) {
         try {
@@ -113,4 +120,19 @@ public class EmailService {
             log.error("Failed to send order status email: {}", e.getMessage());
         }
     }
+
+    private SimpleMailMessage buildWelcomeMessage(User user) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(fromEmail);
+        message.setTo(user.getEmail());
+        message.setSubject("Welcome to Delight Display Zone!");
+        message.setText(String.format(
+            "Hi %s,\n\n" +
+            "Welcome to Delight Display Zone! Your account has been created successfully.\n\n" +
+            "Start shopping now: %s\n\n" +
+            "Best regards,\nDelight Display Zone Team",
+            user.getName(), frontendUrl
+        ));
+        return message;
+    }
 }
@@ -1,81 +1,496 @@
 package com.delightdisplay.service;
 
+import com.delightdisplay.dto.BatchUploadResultDto;
+import com.delightdisplay.dto.UploadedFileDto;
+import com.delightdisplay.entity.StoredFile;
 import com.delightdisplay.exception.BadRequestException;
+import com.delightdisplay.exception.TooManyRequestsException;
+import com.delightdisplay.repository.StoredFileRepository;
+import com.delightdisplay.service.storage.StorageBackend;
+import com.delightdisplay.service.storage.StorageKeys;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @Slf4j
 public class FileStorageService {
+    private static final String URL_PREFIX = "/uploads/";
+    // Enough to recognize every allowed image signature
+    private static final int MAGIC_LENGTH = 12;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
 
-    @Value("${app.upload.dir:uploads}")
-    private String uploadDir;
+    private final StorageBackend storageBackend;
+    private final ImageProcessingService imageProcessingService;
+    private final ImageServingService imageServingService;
+    private final StoredFileRepository storedFileRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    // Local scratch space for uploads in flight; inside the upload dir so local storage can rename into place
+    @Value("${app.storage.staging-dir:${app.upload.dir:uploads}/.staging}")
+    private String stagingDir;
 
     @Value("${app.upload.max-size:5242880}")
     private long maxFileSize;
 
+    @Value("${app.upload.fsync:false}")
+    private boolean fsync;
+
+    @Value("${app.upload.images.await-timeout:10s}")
+    private Duration derivativeAwaitTimeout;
+
     private static final List<String> ALLOWED_EXTENSIONS = Arrays.asList("jpg", "jpeg", "png", "gif", "webp");
     private static final List<String> ALLOWED_CONTENT_TYPES = Arrays.asList(
             "image/jpeg", "image/png", "image/gif", "image/webp");
 
-    private Path uploadPath;
+    @Value("${app.upload.images.normalize.enabled:false}")
+    private boolean normalizeEnabled;
+
+    @Value("${app.upload.batch.max-files:12}")
+    private int maxBatchFiles;
+
+    private Path stagingPath;
+    private final ThreadPoolExecutor batchExecutor;
+
+    public FileStorageService(StorageBackend storageBackend, ImageProcessingService imageProcessingService,
+            ImageServingService imageServingService, StoredFileRepository storedFileRepository,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+            @Value("${app.upload.batch.threads:4}") int batchThreads,
+            @Value("${app.upload.batch.queue-capacity:64}") int batchQueueCapacity) {
+        this.storageBackend = storageBackend;
+        this.imageProcessingService = imageProcessingService;
+        this.imageServingService = imageServingService;
+        this.storedFileRepository = storedFileRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        AtomicInteger counter = new AtomicInteger();
+        // Rejects when the queue is full; see storeImages and publishImageAsync for how each caller copes
+        this.batchExecutor = new ThreadPoolExecutor(batchThreads, batchThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(batchQueueCapacity), r -> {
+                    Thread thread = new Thread(r, "upload-batch-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
 
     @PostConstruct
     public void init() {
-        uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
+        stagingPath = Paths.get(stagingDir).toAbsolutePath().normalize();
         try {
-            Files.createDirectories(uploadPath);
-            log.info("Upload directory created at: {}", uploadPath);
+            Files.createDirectories(stagingPath);
+            log.info("Upload staging directory created at: {}", stagingPath);
         } catch (IOException e) {
-            throw new RuntimeException("Could not create upload directory", e);
+            throw new RuntimeException("Could not create upload staging directory", e);
         }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        batchExecutor.shutdownNow();
+    }
+
     public String storeFile(MultipartFile file, String subDir) {
         validateFile(file);
 
-        String originalFilename = file.getOriginalFilename();
-        String extension = getFileExtension(originalFilename);
-        String newFilename = UUID.randomUUID().toString() + "." + extension;
+        try (InputStream in = file.getInputStream()) {
+            return storeStream(in, file.getSize(), subDir);
+        } catch (IOException e) {
+            throw new BadRequestException("Failed to store file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Streams an upload straight from the request body to the staging directory through a
+     * {@link StagedUpload}, then publishes it.
+     *
+     * @param contentLength declared body length, or -1 if unknown
+     */
+    public String storeStream(InputStream body, long contentLength, String subDir) {
+        try (StagedUpload upload = stage(subDir, contentLength)) {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                upload.write(buffer, 0, read);
+            }
+            return upload.publish();
+        } catch (IOException | UncheckedIOException e) {
+            throw new BadRequestException("Failed to store file: " + e.getMessage());
+        }
+    }
 
+    /**
+     * Starts an upload whose body arrives in chunks, e.g. from a non-blocking servlet read.
+     * The caller writes every chunk, then calls {@link StagedUpload#publish()}, and closes it in
+     * all cases.
+     *
+     * @param contentLength declared body length, or -1 if unknown
+     */
+    public StagedUpload stage(String subDir, long contentLength) throws IOException {
+        if (contentLength > maxFileSize) {
+            throw fileTooLarge();
+        }
+        return new StagedUpload(subDir, Files.createTempFile(stagingPath, "upload-", ".tmp"));
+    }
+
+    /**
+     * Publishes a fully written upload and builds its manifest on the batch upload pool, for
+     * callers that must not block their own thread. Completes with
+     * {@link TooManyRequestsException} when the pool is saturated rather than running on the
+     * caller's thread.
+     */
+    public CompletableFuture<UploadedFileDto> publishImageAsync(StagedUpload upload) {
         try {
-            Path targetDir = uploadPath.resolve(subDir);
-            Files.createDirectories(targetDir);
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return describe(upload.publish());
+                } catch (IOException | UncheckedIOException e) {
+                    throw new BadRequestException("Failed to store file: " + e.getMessage());
+                } finally {
+                    upload.close();
+                }
+            }, batchExecutor);
+        } catch (RejectedExecutionException e) {
+            upload.close();
+            return CompletableFuture.failedFuture(
+                    new TooManyRequestsException("Upload service is busy, please try again shortly", 1));
+        }
+    }
+
+    public UploadedFileDto storeImage(MultipartFile file, String subDir) {
+        return describe(storeFile(file, subDir));
+    }
 
-            Path targetPath = targetDir.resolve(newFilename);
-            Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+    public UploadedFileDto storeImage(InputStream body, long contentLength, String subDir) {
+        return describe(storeStream(body, contentLength, subDir));
+    }
+
+    /**
+     * Stores several images concurrently on the batch upload pool, each going through the same
+     * validation as {@link #storeImage(MultipartFile, String)}. A failing file does not fail the
+     * others; results come back in request order with an error message for each failure.
+     */
+    public BatchUploadResultDto storeImages(List<MultipartFile> files, String subDir) {
+        if (files == null || files.isEmpty()) {
+            throw new BadRequestException("No files uploaded");
+        }
+        if (files.size() > maxBatchFiles) {
+            throw new BadRequestException("Too many files. Maximum is " + maxBatchFiles + " per request");
+        }
 
-            log.info("File stored: {}", targetPath);
-            return "/uploads/" + subDir + "/" + newFilename;
+        List<CompletableFuture<BatchUploadResultDto.Item>> pending = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            int index = i;
+            MultipartFile file = files.get(i);
+            try {
+                pending.add(CompletableFuture.supplyAsync(() -> storeBatchItem(index, file, subDir), batchExecutor));
+            } catch (RejectedExecutionException e) {
+                // Pool saturated: the request thread stores this one itself, which throttles the caller
+                pending.add(CompletableFuture.completedFuture(storeBatchItem(index, file, subDir)));
+            }
+        }
+
+        List<BatchUploadResultDto.Item> items = pending.stream().map(CompletableFuture::join).toList();
+        int succeeded = (int) items.stream().filter(item -> item.getFile() != null).count();
+        return BatchUploadResultDto.builder()
+                .files(items)
+                .succeeded(succeeded)
+                .failed(items.size() - succeeded)
+                .build();
+    }
+
+    private BatchUploadResultDto.Item storeBatchItem(int index, MultipartFile file, String subDir) {
+        BatchUploadResultDto.Item.ItemBuilder item = BatchUploadResultDto.Item.builder()
+                .index(index)
+                .filename(file.getOriginalFilename());
+        try {
+            return item.file(storeImage(file, subDir)).build();
+        } catch (BadRequestException | TooManyRequestsException e) {
+            return item.error(e.getMessage()).build();
+        } catch (RuntimeException e) {
+            log.error("Failed to store batch upload {}", file.getOriginalFilename(), e);
+            return item.error("Failed to store file").build();
+        }
+    }
+
+    /**
+     * Generates the resized derivatives of a stored image on the image processing pool. Waits
+     * up to {@code app.upload.images.await-timeout} for them; if processing takes longer the
+     * manifest still lists the derivative URLs, which become available once it finishes. With
+     * normalization enabled the same task also produces the normalized copy from the one decode,
+     * and the manifest names whichever of the two is kept.
+     */
+    private UploadedFileDto describe(String url) {
+        String key = toKey(url);
+        if (!imageProcessingService.supports(getFileExtension(key))) {
+            return UploadedFileDto.builder().url(url).variants(Map.of()).build();
+        }
+        long deadline = System.nanoTime() + derivativeAwaitTimeout.toNanos();
+        boolean normalize = normalizeEnabled && imageProcessingService.normalizes(getFileExtension(key));
+        // Completed once with the URL the upload ends up under: by the task when it has stored a
+        // normalized copy, or with the original by whichever side gives up on that first
+        CompletableFuture<String> storedUrl = new CompletableFuture<>();
+
+        CompletableFuture<ImageProcessingService.ImageInfo> processing;
+        try {
+            processing = imageProcessingService.submit(() -> processImage(url, normalize, storedUrl));
+        } catch (TooManyRequestsException e) {
+            deleteFile(url);
+            throw e;
+        }
+
+        try {
+            ImageProcessingService.ImageInfo info = processing.get(remaining(deadline), TimeUnit.NANOSECONDS);
+            return manifest(storedUrl.join()).width(info.width()).height(info.height()).build();
+        } catch (TimeoutException e) {
+            log.info("Derivatives for {} still processing after {}", url, derivativeAwaitTimeout);
+            return manifest(settle(url, normalize, storedUrl)).build();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalArgumentException) {
+                // The content type claimed an image but the bytes do not decode as one
+                deleteFile(url);
+                throw new BadRequestException("Invalid image file: " + e.getCause().getMessage());
+            }
+            log.error("Failed to generate derivatives for {}", url, e.getCause());
+            storedUrl.complete(url);
+            return UploadedFileDto.builder().url(storedUrl.join()).variants(Map.of()).build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return manifest(settle(url, normalize, storedUrl)).build();
+        }
+    }
+
+    // The URL is about to be handed out: keep the original unless the normalized copy already replaced it
+    private String settle(String url, boolean normalize, CompletableFuture<String> storedUrl) {
+        if (storedUrl.complete(url) && normalize) {
+            meterRegistry.counter("uploads.normalize", "result", "timeout").increment();
+        }
+        return storedUrl.join();
+    }
+
+    private UploadedFileDto.UploadedFileDtoBuilder manifest(String url) {
+        Map<String, String> variantUrls = new LinkedHashMap<>();
+        imageProcessingService.derivativeKeys(toKey(url)).forEach(
+                (variant, derivativeKey) -> variantUrls.put(variant.getSuffix(), URL_PREFIX + derivativeKey));
+        return UploadedFileDto.builder().url(url).variants(variantUrls);
+    }
+
+    // Runs on the image processing pool. Remote originals are downloaded to staging first and
+    // decoded once for the normalized copy and the derivatives. Stored keys name their content
+    // and are served as immutable, so a smaller normalized copy is stored as an upload of its own
+    // and this upload's reference moves to it. Derivatives that already exist (a duplicate
+    // upload) are not stored again.
+    private ImageProcessingService.ImageInfo processImage(String url, boolean normalize,
+            CompletableFuture<String> storedUrl) {
+        String key = toKey(url);
+        Map<ImageProcessingService.Variant, Path> targets = new EnumMap<>(ImageProcessingService.Variant.class);
+        Path downloaded = null;
+        Path normalized = null;
+        try {
+            // The key the derivatives belong to is only known after normalizing, so all are made then
+            for (Map.Entry<ImageProcessingService.Variant, String> derivative
+                    : imageProcessingService.derivativeKeys(key).entrySet()) {
+                if (normalize || !storageBackend.exists(derivative.getValue())) {
+                    targets.put(derivative.getKey(), Files.createTempFile(stagingPath, "derivative-",
+                            "." + getFileExtension(derivative.getValue())));
+                }
+            }
+            Path source = storageBackend.localPath(key).orElse(null);
+            if (source == null) {
+                downloaded = download(key);
+                source = downloaded;
+            }
+            if (normalize) {
+                normalized = Files.createTempFile(stagingPath, "normalized-", "." + getFileExtension(key));
+            }
+
+            ImageProcessingService.ImageInfo info = imageProcessingService.process(source, normalized, targets);
+            if (normalize && replaceWithNormalized(url, source, normalized, storedUrl)) {
+                info = imageProcessingService.normalizedInfo(info);
+            }
+            storedUrl.complete(url);
+
+            String storedKey = toKey(storedUrl.join());
+            Map<ImageProcessingService.Variant, String> derivativeKeys =
+                    imageProcessingService.derivativeKeys(storedKey);
+            for (Map.Entry<ImageProcessingService.Variant, Path> target : targets.entrySet()) {
+                String derivativeKey = derivativeKeys.get(target.getKey());
+                if (!normalize || !storageBackend.exists(derivativeKey)) {
+                    storageBackend.put(derivativeKey, target.getValue(),
+                            ImageServingService.contentType(derivativeKey));
+                }
+            }
+            imageServingService.evict(storedKey);
+            return info;
         } catch (IOException e) {
-            throw new BadRequestException("Failed to store file: " + e.getMessage());
+            throw new UncheckedIOException(e);
+        } finally {
+            deleteQuietly(downloaded);
+            deleteQuietly(normalized);
+            targets.values().forEach(this::deleteQuietly);
         }
     }
 
+    // Stores the normalized copy when it is smaller, and moves the upload to it unless the
+    // request already handed out the original URL
+    private boolean replaceWithNormalized(String url, Path source, Path normalized,
+            CompletableFuture<String> storedUrl) throws IOException {
+        if (storedUrl.isDone()) {
+            return false;
+        }
+        long originalSize = Files.size(source);
+        long normalizedSize = Files.size(normalized);
+        if (normalizedSize >= originalSize) {
+            meterRegistry.counter("uploads.normalize", "result", "kept").increment();
+            return false;
+        }
+        String key = toKey(url);
+        String normalizedUrl;
+        try (InputStream in = Files.newInputStream(normalized)) {
+            normalizedUrl = storeStream(in, normalizedSize, key.substring(0, key.indexOf('/')));
+        } catch (BadRequestException e) {
+            log.warn("Keeping original {}: failed to store normalized copy: {}", url, e.getMessage());
+            meterRegistry.counter("uploads.normalize", "result", "failed").increment();
+            return false;
+        }
+        if (!storedUrl.complete(normalizedUrl)) {
+            deleteFile(normalizedUrl);
+            return false;
+        }
+        deleteFile(url);
+        meterRegistry.counter("uploads.normalize", "result", "replaced").increment();
+        meterRegistry.counter("uploads.normalize.bytes.saved").increment(originalSize - normalizedSize);
+        log.info("Normalized {} -> {}: {} -> {} bytes", url, normalizedUrl, originalSize, normalizedSize);
+        return true;
+    }
+
+    private Path download(String key) throws IOException {
+        Path downloaded = Files.createTempFile(stagingPath, "source-", ".tmp");
+        try (InputStream in = storageBackend.open(key)) {
+            Files.copy(in, downloaded, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteQuietly(downloaded);
+            throw e;
+        }
+        return downloaded;
+    }
+
+    private static long remaining(long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    /**
+     * Drops one reference to a stored file and removes it, with its derivatives, once nothing
+     * references it. Files from before content addressing have no reference row and are removed
+     * directly.
+     */
     public void deleteFile(String filePath) {
-        if (filePath == null || !filePath.startsWith("/uploads/")) {
+        String requestedKey = toKey(filePath);
+        if (requestedKey == null) {
             return;
         }
 
+        transactionTemplate.executeWithoutResult(status -> {
+            // A reference may predate the layout migration while the row already moved, or the reverse
+            String alternate = StorageKeys.alternate(requestedKey);
+            String key = !storedFileRepository.existsById(requestedKey) && alternate != null
+                    && storedFileRepository.existsById(alternate) ? alternate : requestedKey;
+            if (storedFileRepository.existsById(key)) {
+                storedFileRepository.release(key);
+                if (storedFileRepository.deleteIfUnreferenced(key) == 0) {
+                    log.info("File still referenced, keeping: {}", key);
+                    return;
+                }
+            }
+            try {
+                for (String candidate : alternate != null ? List.of(requestedKey, alternate) : List.of(requestedKey)) {
+                    storageBackend.delete(candidate);
+                    for (String derivativeKey : imageProcessingService.derivativeKeys(candidate).values()) {
+                        storageBackend.delete(derivativeKey);
+                    }
+                }
+                log.info("File deleted: {}", key);
+            } catch (IOException e) {
+                log.error("Failed to delete file: {}", e.getMessage());
+            }
+            imageServingService.evict(key);
+        });
+    }
+
+    // Undoes a put whose reference could not be recorded, unless another upload of the same
+    // content holds a reference to it by now
+    private void discardIfUnreferenced(String key) {
         try {
-            String relativePath = filePath.substring("/uploads/".length());
-            Path targetPath = uploadPath.resolve(relativePath);
-            Files.deleteIfExists(targetPath);
-            log.info("File deleted: {}", targetPath);
+            transactionTemplate.executeWithoutResult(status -> {
+                StoredFile storedFile = storedFileRepository.lockByPath(key).orElse(null);
+                if (storedFile != null && storedFile.getRefCount() > 0) {
+                    return;
+                }
+                try {
+                    storageBackend.delete(key);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            // The orphan collector removes it later
+            log.warn("Failed to remove unreferenced upload {}: {}", key, e.getMessage());
+        }
+    }
+
+    // Maps an /uploads/... URL to its storage key, or null for anything that is not a valid key
+    private static String toKey(String url) {
+        if (url == null || !url.startsWith(URL_PREFIX)) {
+            return null;
+        }
+        String key = url.substring(URL_PREFIX.length());
+        return StorageBackend.isValidKey(key) ? key : null;
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
         } catch (IOException e) {
-            log.error("Failed to delete file: {}", e.getMessage());
+            log.warn("Failed to remove staged file {}", path);
         }
     }
 
@@ -85,8 +500,7 @@ public class FileStorageService {
         }
 
         if (file.getSize() > maxFileSize) {
-            throw new BadRequestException(
-                    "File size exceeds maximum allowed size of " + (maxFileSize / 1024 / 1024) + "MB");
+            throw fileTooLarge();
         }
 
         String contentType = file.getContentType();
@@ -100,6 +514,167 @@ public class FileStorageService {
         }
     }
 
+    private static void writeFully(FileChannel target, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    /**
+     * An upload being written to the staging directory. The type is taken from the magic bytes
+     * of the first chunk, and the SHA-256 and size limit are applied as chunks arrive. On
+     * {@link #publish()} the staged file is handed to the storage backend as
+     * {@code <subDir>/<sha256>.<ext>} in the {@link StorageKeys} sharded layout; local storage
+     * renames it into place, so the bytes are written once. If that content already exists the
+     * staged file is discarded and the existing file gets another reference.
+     */
+    public final class StagedUpload implements Closeable {
+        private final String subDir;
+        private final Path tempPath;
+        private final FileChannel target;
+        private final MessageDigest digest = sha256();
+        private final ByteBuffer head = ByteBuffer.allocate(MAGIC_LENGTH);
+        private String extension;
+        private long size;
+
+        private StagedUpload(String subDir, Path tempPath) throws IOException {
+            this.subDir = subDir;
+            this.tempPath = tempPath;
+            this.target = FileChannel.open(tempPath, StandardOpenOption.WRITE);
+        }
+
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            size += length;
+            if (size > maxFileSize) {
+                throw fileTooLarge();
+            }
+            if (extension == null) {
+                head.put(bytes, offset, Math.min(head.remaining(), length));
+                if (!head.hasRemaining()) {
+                    detectType();
+                }
+            }
+            digest.update(bytes, offset, length);
+            writeFully(target, ByteBuffer.wrap(bytes, offset, length));
+        }
+
+        public String publish() throws IOException {
+            if (size == 0) {
+                throw new BadRequestException("File is empty");
+            }
+            if (extension == null) {
+                detectType();
+            }
+            if (fsync) {
+                target.force(true);
+            }
+            target.close();
+
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            String key = StorageKeys.sharded(subDir, sha256 + "." + extension);
+            long storedSize = size;
+            // The bytes are transferred before any transaction opens, so a slow or remote put
+            // never pins a database connection
+            boolean stored = false;
+            if (storageBackend.exists(key)) {
+                log.info("Duplicate upload, reusing: {}", key);
+            } else {
+                storageBackend.put(key, tempPath, ImageServingService.contentType(key));
+                imageServingService.evict(key);
+                stored = true;
+            }
+            // The acquire waits for a concurrent delete of the same content to commit, and once the
+            // reference is held nothing can remove the object, so checking it afterwards is enough
+            boolean present;
+            try {
+                present = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                    storedFileRepository.acquire(key, sha256, storedSize);
+                    try {
+                        if (storageBackend.exists(key)) {
+                            return true;
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    status.setRollbackOnly();
+                    return false;
+                }));
+            } catch (RuntimeException e) {
+                if (stored) {
+                    discardIfUnreferenced(key);
+                }
+                throw e;
+            }
+            if (!present) {
+                throw new BadRequestException("File was deleted while uploading, please try again");
+            }
+            if (stored) {
+                log.info("File stored: {}", key);
+            }
+            return URL_PREFIX + key;
+        }
+
+        @Override
+        public void close() {
+            try {
+                target.close();
+            } catch (IOException e) {
+                log.warn("Failed to close staged file {}", tempPath);
+            }
+            deleteQuietly(tempPath);
+        }
+
+        private void detectType() {
+            extension = detectExtension(Arrays.copyOf(head.array(), head.position()));
+            if (extension == null) {
+                throw new BadRequestException("Invalid file type. Allowed: " + String.join(", ", ALLOWED_EXTENSIONS));
+            }
+        }
+    }
+
+    // Extension by file signature; the client's filename and Content-Type are not trusted for this
+    private static String detectExtension(byte[] head) {
+        if (startsWith(head, 0, 0xFF, 0xD8, 0xFF)) {
+            return "jpg";
+        }
+        if (startsWith(head, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "png";
+        }
+        if (startsWith(head, 0, 'G', 'I', 'F', '8') && head.length >= 6 && (head[4] == '7' || head[4] == '9')
+                && head[5] == 'a') {
+            return "gif";
+        }
+        if (startsWith(head, 0, 'R', 'I', 'F', 'F') && startsWith(head, 8, 'W', 'E', 'B', 'P')) {
+            return "webp";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, int... signature) {
+        if (bytes.length < offset + signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((bytes[offset + i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private BadRequestException fileTooLarge() {
+        return new BadRequestException(
+                "File size exceeds maximum allowed size of " + (maxFileSize / 1024 / 1024) + "MB");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
     private String getFileExtension(String filename) {
         if (filename == null || !filename.contains(".")) {
             return "";
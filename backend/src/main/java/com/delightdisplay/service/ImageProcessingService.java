@@ -0,0 +1,389 @@
+package com.delightdisplay.service;
+
+import com.delightdisplay.exception.TooManyRequestsException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Generates resized derivatives of uploaded images with plain ImageIO/Java2D on a bounded
+ * pool. Derivatives are stored next to the original as {@code <name>_<variant>.<ext>}; images
+ * with possible transparency become PNG, everything else JPEG. Can also produce a normalized
+ * copy of the original: EXIF orientation applied, metadata dropped, dimensions capped and
+ * re-encoded.
+ */
+@Service
+@Slf4j
+public class ImageProcessingService {
+    // Formats ImageIO can decode without extra plugins
+    private static final Set<String> DECODABLE_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif");
+    // GIFs are left alone: re-encoding would drop animation frames
+    private static final Set<String> NORMALIZABLE_EXTENSIONS = Set.of("jpg", "jpeg", "png");
+    private static final int EXIF_ORIENTATION_TAG = 0x0112;
+
+    public enum Variant {
+        THUMBNAIL("thumb"), CARD("card"), DETAIL("detail");
+
+        private final String suffix;
+
+        Variant(String suffix) {
+            this.suffix = suffix;
+        }
+
+        public String getSuffix() {
+            return suffix;
+        }
+    }
+
+    public record ImageInfo(int width, int height) {
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Map<Variant, Integer> sizes;
+
+    @Value("${app.upload.images.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    @Value("${app.upload.images.max-pixels:40000000}")
+    private long maxPixels;
+
+    @Value("${app.upload.images.normalize.max-dimension:2560}")
+    private int normalizeMaxDimension;
+
+    @Value("${app.upload.images.normalize.jpeg-quality:0.82}")
+    private float normalizeJpegQuality;
+
+    public ImageProcessingService(
+            @Value("${app.upload.images.threads:0}") int threads,
+            @Value("${app.upload.images.queue-capacity:32}") int queueCapacity,
+            @Value("${app.upload.images.thumbnail-size:200}") int thumbnailSize,
+            @Value("${app.upload.images.card-size:480}") int cardSize,
+            @Value("${app.upload.images.detail-size:1200}") int detailSize) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "image-processing-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.sizes = Map.of(Variant.THUMBNAIL, thumbnailSize, Variant.CARD, cardSize, Variant.DETAIL, detailSize);
+        // Decode straight from memory instead of through temp files
+        ImageIO.setUseCache(false);
+        log.info("Image processing pool: {} threads, queue {}", poolSize, queueCapacity);
+    }
+
+    public boolean supports(String extension) {
+        return extension != null && DECODABLE_EXTENSIONS.contains(extension.toLowerCase(Locale.ROOT));
+    }
+
+    public boolean normalizes(String extension) {
+        return extension != null && NORMALIZABLE_EXTENSIONS.contains(extension.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Storage keys the derivatives of {@code key} are (or would be) stored at, in variant order.
+     */
+    public Map<Variant, String> derivativeKeys(String key) {
+        int dot = key.lastIndexOf('.');
+        String baseName = dot > key.lastIndexOf('/') ? key.substring(0, dot) : key;
+        String extension = dot > key.lastIndexOf('/') ? key.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+        String derivativeExtension = extension.equals("png") || extension.equals("gif") ? "png" : "jpg";
+
+        Map<Variant, String> keys = new LinkedHashMap<>();
+        for (Variant variant : Variant.values()) {
+            keys.put(variant, baseName + "_" + variant.getSuffix() + "." + derivativeExtension);
+        }
+        return keys;
+    }
+
+    /**
+     * Runs image work on the bounded pool. Fails fast with {@link TooManyRequestsException} when
+     * the pool is saturated.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            throw new TooManyRequestsException("Image processing is busy, please try again shortly", 1);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Decodes {@code source} once and writes the requested variants to the given files. When
+     * {@code normalized} is not null the original is also written there in the same format
+     * without metadata, no larger than {@code app.upload.images.normalize.max-dimension}, and
+     * the variants are scaled from that copy. Returns the dimensions of the decoded original;
+     * see {@link #normalizedInfo(ImageInfo)} for those of the copy. Throws
+     * {@link IllegalArgumentException} when the source is not a decodable image.
+     */
+    public ImageInfo process(Path source, Path normalized, Map<Variant, Path> targets) {
+        long startedAt = System.nanoTime();
+        BufferedImage image = read(source);
+        ImageInfo info = new ImageInfo(image.getWidth(), image.getHeight());
+        if (normalized != null) {
+            image = resize(image, normalizeMaxDimension);
+            write(image, normalized, normalizeJpegQuality);
+        }
+        // Largest first, so each smaller variant is scaled down from the previous one
+        BufferedImage previous = image;
+        for (Variant variant : bySizeDescending()) {
+            Path target = targets.get(variant);
+            if (target == null) {
+                continue;
+            }
+            previous = resize(previous, sizes.get(variant));
+            write(previous, target, jpegQuality);
+        }
+        log.debug("Generated {} derivatives in {} ms", targets.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        return info;
+    }
+
+    /**
+     * Dimensions of the normalized copy of an image of the given dimensions.
+     */
+    public ImageInfo normalizedInfo(ImageInfo original) {
+        return scaled(original.width(), original.height(), normalizeMaxDimension);
+    }
+
+    private List<Variant> bySizeDescending() {
+        return Arrays.stream(Variant.values())
+                .sorted(Comparator.comparing(sizes::get, Comparator.reverseOrder()))
+                .toList();
+    }
+
+    private BufferedImage read(Path path) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(path.toFile())) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IllegalArgumentException("Unsupported image format: " + path.getFileName());
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                // Check dimensions from the header before decoding to reject decompression bombs
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    throw new IllegalArgumentException("Image is too large to process: " + pixels + " pixels");
+                }
+                BufferedImage image = reader.read(0);
+                return reader.getFormatName().equalsIgnoreCase("jpeg") ? orient(image, exifOrientation(path)) : image;
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unreadable image: " + path.getFileName(), e);
+        }
+    }
+
+    // Halves the image with bilinear filtering until close to the target, then does one final
+    // step; this approximates area averaging at a fraction of the cost of SCALE_AREA_AVERAGING.
+    private static BufferedImage resize(BufferedImage source, int maxDimension) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        ImageInfo target = scaled(width, height, maxDimension);
+        int targetWidth = target.width();
+        int targetHeight = target.height();
+
+        BufferedImage current = source;
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            current = draw(current, width, height);
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static ImageInfo scaled(int width, int height, int maxDimension) {
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(width, height));
+        return new ImageInfo(Math.max(1, (int) Math.round(width * scale)),
+                Math.max(1, (int) Math.round(height * scale)));
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage target = new BufferedImage(width, height, type);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    // Reads the orientation tag from the EXIF (APP1) segment by walking the JPEG markers
+    // directly; ImageIO's JPEG metadata rejects the common APP1-before-JFIF layout of camera
+    // files. Returns 1 (as stored) when there is no usable tag.
+    private static int exifOrientation(Path path) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readUnsignedShort() != 0xFFD8) {
+                return 1;
+            }
+            while (true) {
+                int marker = in.readUnsignedShort();
+                // Start of scan: no metadata after this point
+                if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA) {
+                    return 1;
+                }
+                int length = in.readUnsignedShort() - 2;
+                if (length < 0) {
+                    return 1;
+                }
+                if (marker == 0xFFE1) {
+                    byte[] segment = in.readNBytes(length);
+                    int orientation = exifOrientation(segment);
+                    if (orientation > 0) {
+                        return orientation;
+                    }
+                } else {
+                    in.skipNBytes(length);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            return 1;
+        }
+    }
+
+    private static int exifOrientation(byte[] app1) {
+        // "Exif\0\0", then a TIFF header: byte order, 42, offset of IFD0
+        if (app1.length < 14 || app1[0] != 'E' || app1[1] != 'x' || app1[2] != 'i' || app1[3] != 'f') {
+            return 0;
+        }
+        ByteBuffer tiff = ByteBuffer.wrap(app1, 6, app1.length - 6).slice();
+        tiff.order(tiff.get(0) == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        int ifd = tiff.getInt(4);
+        if (ifd < 8 || ifd + 2 > tiff.limit()) {
+            return 0;
+        }
+        int entries = tiff.getShort(ifd) & 0xFFFF;
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > tiff.limit()) {
+                break;
+            }
+            if ((tiff.getShort(entry) & 0xFFFF) == EXIF_ORIENTATION_TAG) {
+                int orientation = tiff.getShort(entry + 8) & 0xFFFF;
+                return orientation >= 1 && orientation <= 8 ? orientation : 0;
+            }
+        }
+        return 0;
+    }
+
+    // Bakes the EXIF orientation into the pixels, since neither derivatives nor normalized
+    // originals keep the tag
+    private static BufferedImage orient(BufferedImage image, int orientation) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        AffineTransform transform = switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, w, 0);
+            case 3 -> new AffineTransform(-1, 0, 0, -1, w, h);
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, h);
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);
+            case 6 -> new AffineTransform(0, 1, -1, 0, h, 0);
+            case 7 -> new AffineTransform(0, -1, -1, 0, h, w);
+            case 8 -> new AffineTransform(0, -1, 1, 0, 0, w);
+            default -> null;
+        };
+        if (transform == null) {
+            return image;
+        }
+        boolean swapped = orientation >= 5;
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage oriented = new BufferedImage(swapped ? h : w, swapped ? w : h, type);
+        Graphics2D graphics = oriented.createGraphics();
+        try {
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return oriented;
+    }
+
+    private void write(BufferedImage image, Path target, float quality) {
+        try {
+            if (target.getFileName().toString().endsWith(".png")) {
+                ImageIO.write(image, "png", target.toFile());
+            } else {
+                writeJpeg(flatten(image), target, quality);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write derivative " + target.getFileName(), e);
+        }
+    }
+
+    private static void writeJpeg(BufferedImage image, Path target, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // JPEG has no alpha channel; composite onto white so transparent areas do not turn black
+    private static BufferedImage flatten(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rgb;
+    }
+}
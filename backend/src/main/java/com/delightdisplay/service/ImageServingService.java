@@ -0,0 +1,165 @@
+package com.delightdisplay.service;
+
+import com.delightdisplay.service.storage.StorageBackend;
+import com.delightdisplay.service.storage.StorageKeys;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Resolves {@code /uploads/...} paths through the {@link StorageBackend} for
+ * {@link com.delightdisplay.controller.ImageController}, caching the outcome (size, timestamp,
+ * ETag, or that the key is missing) so hot images cost no filesystem or bucket lookups.
+ * When the client accepts AVIF or WebP and a sibling {@code <name>.avif} / {@code <name>.webp}
+ * exists next to a JPEG, PNG or GIF, that variant is served instead. A key missing from storage
+ * is also looked up under its other {@link StorageKeys} layout, so flat and sharded URLs both keep
+ * working while the layout migration runs.
+ */
+@Service
+public class ImageServingService {
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "jpg", "image/jpeg", "jpeg", "image/jpeg", "png", "image/png", "gif", "image/gif",
+            "webp", "image/webp", "avif", "image/avif");
+
+    /**
+     * @param path the local file when the backend is a filesystem, otherwise null
+     */
+    public record ServedFile(String key, Path path, String contentType, long length, long lastModified,
+            String etag) {
+    }
+
+    private final StorageBackend storageBackend;
+    private final Cache<String, Optional<ServedFile>> resolved;
+
+    @Value("${app.upload.serving.negotiate-formats:true}")
+    private boolean negotiateFormats;
+
+    public ImageServingService(
+            StorageBackend storageBackend,
+            @Value("${app.upload.serving.cache-ttl:60s}") Duration ttl,
+            @Value("${app.upload.serving.cache-size:20000}") long maxSize) {
+        this.storageBackend = storageBackend;
+        this.resolved = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public static String contentType(String key) {
+        return CONTENT_TYPES.getOrDefault(extension(key), "application/octet-stream");
+    }
+
+    /**
+     * @param key path below /uploads/, already URL-decoded
+     * @param accept the request's Accept header, may be null
+     */
+    public Optional<ServedFile> resolve(String key, String accept) {
+        if (!StorageBackend.isValidKey(key) || !CONTENT_TYPES.containsKey(extension(key))) {
+            return Optional.empty();
+        }
+
+        if (variesByAccept(key) && accept != null) {
+            for (String format : new String[] { "avif", "webp" }) {
+                if (accepts(accept, CONTENT_TYPES.get(format))) {
+                    Optional<ServedFile> variant = lookup(withExtension(key, format));
+                    if (variant.isPresent()) {
+                        return variant;
+                    }
+                }
+            }
+        }
+        return lookup(key);
+    }
+
+    /**
+     * Whether responses for this key depend on the Accept header and so need {@code Vary: Accept}.
+     */
+    public boolean variesByAccept(String key) {
+        String extension = extension(key);
+        return negotiateFormats && !extension.equals("webp") && !extension.equals("avif");
+    }
+
+    public InputStream open(ServedFile file, long start, long end) throws IOException {
+        return storageBackend.open(file.key(), start, end);
+    }
+
+    /**
+     * Forgets cached entries for a stored key and every sibling sharing its base name
+     * (derivatives and format variants), under both layouts. Called after every write, move and
+     * delete, so it invalidates the exact keys those siblings can be cached under rather than
+     * scanning the cache.
+     */
+    public void evict(String key) {
+        List<String> stems = new ArrayList<>(2 * (ImageProcessingService.Variant.values().length + 1));
+        String alternate = StorageKeys.alternate(key);
+        for (String layoutKey : alternate != null ? List.of(key, alternate) : List.of(key)) {
+            String base = baseName(layoutKey);
+            stems.add(base);
+            for (ImageProcessingService.Variant variant : ImageProcessingService.Variant.values()) {
+                stems.add(base + "_" + variant.getSuffix());
+            }
+        }
+        List<String> keys = new ArrayList<>(stems.size() * CONTENT_TYPES.size());
+        for (String stem : stems) {
+            for (String extension : CONTENT_TYPES.keySet()) {
+                keys.add(stem + "." + extension);
+            }
+        }
+        // Resolve looks keys up exactly as requested, so an upper-case extension is its own entry
+        keys.add(key);
+        if (alternate != null) {
+            keys.add(alternate);
+        }
+        resolved.invalidateAll(keys);
+    }
+
+    private Optional<ServedFile> lookup(String key) {
+        return resolved.get(key, this::load);
+    }
+
+    private Optional<ServedFile> load(String key) {
+        try {
+            Optional<ServedFile> file = stat(key);
+            String alternate = StorageKeys.alternate(key);
+            return file.isPresent() || alternate == null ? file : stat(alternate);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Optional<ServedFile> stat(String key) throws IOException {
+        return storageBackend.stat(key).map(stat -> new ServedFile(key, storageBackend.localPath(key).orElse(null),
+                contentType(key), stat.length(), stat.lastModified(),
+                "\"" + Long.toHexString(stat.length()) + "-" + Long.toHexString(stat.lastModified()) + "\""));
+    }
+
+    private static String baseName(String key) {
+        int dot = key.lastIndexOf('.');
+        return dot > key.lastIndexOf('/') ? key.substring(0, dot) : key;
+    }
+
+    private static boolean accepts(String accept, String contentType) {
+        return accept.toLowerCase(Locale.ROOT).contains(contentType);
+    }
+
+    private static String withExtension(String key, String extension) {
+        return key.substring(0, key.lastIndexOf('.') + 1) + extension;
+    }
+
+    private static String extension(String key) {
+        int dot = key.lastIndexOf('.');
+        return dot > key.lastIndexOf('/') ? key.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+}
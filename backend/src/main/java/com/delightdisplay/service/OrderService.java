@@ -23,11 +23,13 @@ public class OrderService {
     private final ProductRepository productRepository;
     private final UserService userService;
     private final EmailService emailService;
+    private final SalesSketchService salesSketchService;
+    private final TimeSeriesService timeSeriesService;
+    private final DashboardSnapshotService dashboardSnapshotService;
 
     @Transactional(readOnly = true)
     public Page<OrderDto> getMyOrders(Pageable pageable) {
-        User user = userService.getCurrentUser();
-        return orderRepository.findByUserId(user.getId(), pageable).map(order -> {
+        return orderRepository.findByUserId(userService.getCurrentUserId(), pageable).map(order -> {
             // Force load user within transaction
             order.getUser().getEmail();
             return OrderDto.fromEntity(order);
@@ -49,9 +51,8 @@ public class OrderService {
         Order order = orderRepository.findByIdWithUser(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
 
-        User currentUser = userService.getCurrentUser();
-        if (!order.getUser().getId().equals(currentUser.getId()) &&
-                currentUser.getRole() != User.Role.ADMIN) {
+        if (!order.getUser().getId().equals(userService.getCurrentUserId()) &&
+                !userService.isCurrentUserAdmin()) {
             throw new BadRequestException("Access denied");
         }
 
@@ -116,6 +117,10 @@ public class OrderService {
         cart.getItems().clear();
         cartRepository.save(cart);
 
+        salesSketchService.recordOrder(order);
+        timeSeriesService.recordOrder(order);
+        dashboardSnapshotService.recordOrderEvent();
+
         // Send confirmation email
         emailService.sendOrderConfirmationEmail(user, order);
 
@@ -129,6 +134,7 @@ public class OrderService {
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
         order.setStatus(status);
         order = orderRepository.save(order);
+        dashboardSnapshotService.recordOrderEvent();
 
         // Send status update email
         emailService.sendOrderStatusUpdateEmail(order.getUser(), order);
@@ -142,9 +148,8 @@ public class OrderService {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
 
-        User currentUser = userService.getCurrentUser();
-        if (!order.getUser().getId().equals(currentUser.getId()) &&
-                currentUser.getRole() != User.Role.ADMIN) {
+        if (!order.getUser().getId().equals(userService.getCurrentUserId()) &&
+                !userService.isCurrentUserAdmin()) {
             throw new BadRequestException("Access denied");
         }
 
@@ -161,6 +166,7 @@ public class OrderService {
         }
 
         order.setStatus(Order.OrderStatus.CANCELLED);
+        dashboardSnapshotService.recordOrderEvent();
         return OrderDto.fromEntity(orderRepository.save(order));
     }
 }
@@ -16,14 +16,14 @@ public class PaymentService {
     private final PaymentRepository paymentRepository;
     private final OrderRepository orderRepository;
     private final UserService userService;
+    private final DashboardSnapshotService dashboardSnapshotService;
 
     @Transactional
     public PaymentDto createPaymentIntent(Long orderId) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
 
-        User currentUser = userService.getCurrentUser();
-        if (!order.getUser().getId().equals(currentUser.getId())) {
+        if (!order.getUser().getId().equals(userService.getCurrentUserId())) {
             throw new BadRequestException("Access denied");
         }
 
@@ -73,6 +73,7 @@ public class PaymentService {
         order.setPaymentStatus(Order.PaymentStatus.COMPLETED);
         order.setStatus(Order.OrderStatus.CONFIRMED);
         orderRepository.save(order);
+        dashboardSnapshotService.recordOrderEvent();
 
         PaymentDto dto = new PaymentDto();
         dto.setOrderId(order.getId());
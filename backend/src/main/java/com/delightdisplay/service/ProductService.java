@@ -24,10 +24,12 @@ public class ProductService {
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
 
+    @Transactional(readOnly = true)
     public Page<ProductDto> getAllProducts(Pageable pageable) {
         return productRepository.findAll(pageable).map(ProductDto::fromEntity);
     }
 
+    @Transactional(readOnly = true)
     public Page<ProductDto> searchProducts(
             String name, Long categoryId, String category, BigDecimal minPrice, BigDecimal maxPrice,
             Boolean inStock, Boolean featured, Boolean isNew, Pageable pageable) {
@@ -41,6 +43,7 @@ public class ProductService {
                 .map(ProductDto::fromEntity);
     }
 
+    @Transactional(readOnly = true)
     public ProductDto getProductById(String id) {
         Long productId = Long.parseLong(id);
         Product product = productRepository.findById(productId)
@@ -49,6 +52,7 @@ public class ProductService {
     }
 
     @Cacheable(value = "featuredProducts")
+    @Transactional(readOnly = true)
     public List<ProductDto> getFeaturedProducts() {
         return productRepository.findByFeaturedTrue().stream()
                 .map(ProductDto::fromEntity)
@@ -56,6 +60,7 @@ public class ProductService {
     }
 
     @Cacheable(value = "newProducts")
+    @Transactional(readOnly = true)
     public List<ProductDto> getNewProducts() {
         return productRepository.findByIsNewTrue().stream()
                 .map(ProductDto::fromEntity)
@@ -0,0 +1,102 @@
+package com.delightdisplay.service;
+
+import com.delightdisplay.entity.RefreshToken;
+import com.delightdisplay.entity.User;
+import com.delightdisplay.exception.BadRequestException;
+import com.delightdisplay.repository.RefreshTokenRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RefreshTokenService {
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    @Value("${jwt.refresh-expiration:30d}")
+    private Duration refreshExpiration;
+
+    /**
+     * Creates a refresh token for the user and returns the raw value; only its hash is stored.
+     */
+    @Transactional
+    public String issue(User user) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(hash(rawToken))
+                .user(user)
+                .expiresAt(LocalDateTime.now().plus(refreshExpiration))
+                .build());
+        return rawToken;
+    }
+
+    /**
+     * Consumes a refresh token and returns its user. Each token is single-use; presenting one
+     * that was already rotated revokes every refresh token of that user. The token is claimed
+     * with a conditional update, so of two concurrent refreshes with the same token only one
+     * wins and the other is treated as reuse. Callers must not wrap this in their own
+     * transaction, or the family revocation is rolled back along with the rejected request.
+     */
+    @Transactional(noRollbackFor = BadRequestException.class)
+    public User consume(String rawToken) {
+        RefreshToken token = refreshTokenRepository.findByTokenHashWithUser(hash(rawToken))
+                .orElseThrow(() -> new BadRequestException("Invalid refresh token"));
+        User user = token.getUser();
+        if (token.isRevoked()) {
+            throw reuseDetected(user);
+        }
+        if (token.isExpired()) {
+            throw new BadRequestException("Refresh token has expired");
+        }
+        if (!user.isEnabled()) {
+            throw new BadRequestException("Account is disabled");
+        }
+        if (refreshTokenRepository.revokeIfActive(token.getId(), LocalDateTime.now()) != 1) {
+            throw reuseDetected(user);
+        }
+        return user;
+    }
+
+    @Transactional
+    public void revoke(String rawToken) {
+        refreshTokenRepository.findByTokenHashWithUser(hash(rawToken))
+                .filter(token -> !token.isRevoked())
+                .ifPresent(token -> token.setRevokedAt(LocalDateTime.now()));
+    }
+
+    @Transactional
+    public void revokeAll(Long userId) {
+        refreshTokenRepository.revokeAllForUser(userId, LocalDateTime.now());
+    }
+
+    private BadRequestException reuseDetected(User user) {
+        log.warn("Reuse of revoked refresh token for user {}", user.getId());
+        revokeAll(user.getId());
+        return new BadRequestException("Invalid refresh token");
+    }
+
+    private static String hash(String rawToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(rawToken.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
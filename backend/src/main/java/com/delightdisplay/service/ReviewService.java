@@ -18,6 +18,7 @@ public class ReviewService {
     private final ProductRepository productRepository;
     private final UserService userService;
 
+    @Transactional(readOnly = true)
     public Page<ReviewDto> getProductReviews(String productId, Pageable pageable) {
         Long prodId = Long.parseLong(productId);
         return reviewRepository.findByProductId(prodId, pageable).map(ReviewDto::fromEntity);
@@ -50,8 +51,7 @@ public class ReviewService {
         Review review = reviewRepository.findById(reviewId)
                 .orElseThrow(() -> new ResourceNotFoundException("Review not found"));
 
-        User currentUser = userService.getCurrentUser();
-        if (!review.getUser().getId().equals(currentUser.getId())) {
+        if (!review.getUser().getId().equals(userService.getCurrentUserId())) {
             throw new BadRequestException("You can only update your own reviews");
         }
 
@@ -69,9 +69,8 @@ public class ReviewService {
         Review review = reviewRepository.findById(reviewId)
                 .orElseThrow(() -> new ResourceNotFoundException("Review not found"));
 
-        User currentUser = userService.getCurrentUser();
-        if (!review.getUser().getId().equals(currentUser.getId()) &&
-                currentUser.getRole() != User.Role.ADMIN) {
+        if (!review.getUser().getId().equals(userService.getCurrentUserId()) &&
+                !userService.isCurrentUserAdmin()) {
             throw new BadRequestException("Access denied");
         }
 
@@ -0,0 +1,143 @@
+package com.delightdisplay.service;
+
+import com.delightdisplay.config.ReportingQuery;
+import com.delightdisplay.entity.Order;
+import com.delightdisplay.entity.OrderItem;
+import com.delightdisplay.repository.OrderRepository;
+import com.delightdisplay.util.HyperLogLog;
+import com.delightdisplay.util.SpaceSavingTopK;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SalesSketchService {
+    private final OrderRepository orderRepository;
+
+    @Value("${app.analytics.sketch.retention-days:90}")
+    private int retentionDays;
+
+    @Value("${app.analytics.sketch.top-k-capacity:256}")
+    private int topKCapacity;
+
+    private final ConcurrentSkipListMap<LocalDate, DayBucket> buckets = new ConcurrentSkipListMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @ReportingQuery
+    public void warmUp() {
+        LocalDateTime since = LocalDate.now().minusDays(retentionDays).atStartOfDay();
+        List<Object[]> facts = orderRepository.getOrderItemFacts(since);
+        for (Object[] row : facts) {
+            LocalDateTime createdAt = (LocalDateTime) row[0];
+            BigDecimal price = row[5] != null ? (BigDecimal) row[5] : BigDecimal.ZERO;
+            long quantity = row[4] != null ? ((Number) row[4]).longValue() : 0;
+            record(createdAt, (Long) row[1], (Long) row[2], (String) row[3], quantity,
+                    price.multiply(BigDecimal.valueOf(quantity)));
+        }
+        log.info("Sales sketches warmed up from {} order items across {} days", facts.size(), buckets.size());
+    }
+
+    public void recordOrder(Order order) {
+        LocalDateTime createdAt = order.getCreatedAt() != null ? order.getCreatedAt() : LocalDateTime.now();
+        Long buyerId = order.getUser().getId();
+        // Capture the facts while the entities are still attached, apply them once committed
+        List<ItemFact> facts = new ArrayList<>(order.getItems().size());
+        for (OrderItem item : order.getItems()) {
+            String category = item.getProduct().getCategory() != null
+                    ? item.getProduct().getCategory().getName()
+                    : null;
+            facts.add(new ItemFact(item.getProduct().getId(), category, item.getQuantity(),
+                    item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()))));
+        }
+        Runnable apply = () -> {
+            for (ItemFact fact : facts) {
+                record(createdAt, buyerId, fact.productId(), fact.category(), fact.quantity(), fact.revenue());
+            }
+            evictExpired();
+        };
+        // A rolled-back order must not leave a trace in the sketches
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    public Window window(LocalDate from) {
+        Window window = new Window(new SpaceSavingTopK<>(topKCapacity), new SpaceSavingTopK<>(topKCapacity),
+                new SpaceSavingTopK<>(topKCapacity), new HyperLogLog(), new TreeMap<>());
+        for (Map.Entry<LocalDate, DayBucket> entry : buckets.tailMap(from, true).entrySet()) {
+            DayBucket bucket = entry.getValue();
+            synchronized (bucket) {
+                window.products().merge(bucket.products);
+                window.categoryItems().merge(bucket.categoryItems);
+                window.categoryRevenueCents().merge(bucket.categoryRevenueCents);
+                window.buyers().merge(bucket.buyers);
+                window.dailyBuyers().put(entry.getKey(), bucket.buyers.estimate());
+            }
+        }
+        return window;
+    }
+
+    private void record(LocalDateTime createdAt, Long buyerId, Long productId, String category,
+            long quantity, BigDecimal revenue) {
+        DayBucket bucket = buckets.computeIfAbsent(createdAt.toLocalDate(), d -> new DayBucket(topKCapacity));
+        String categoryKey = category != null ? category : "Unknown";
+        synchronized (bucket) {
+            bucket.products.add(productId, quantity);
+            bucket.categoryItems.add(categoryKey, 1);
+            bucket.categoryRevenueCents.add(categoryKey, revenue.movePointRight(2).longValue());
+            bucket.buyers.add(buyerId);
+        }
+    }
+
+    private void evictExpired() {
+        buckets.headMap(LocalDate.now().minusDays(retentionDays)).clear();
+    }
+
+    public record Window(
+            SpaceSavingTopK<Long> products,
+            SpaceSavingTopK<String> categoryItems,
+            SpaceSavingTopK<String> categoryRevenueCents,
+            HyperLogLog buyers,
+            NavigableMap<LocalDate, Long> dailyBuyers) {
+    }
+
+    private record ItemFact(Long productId, String category, long quantity, BigDecimal revenue) {
+    }
+
+    private static final class DayBucket {
+        private final SpaceSavingTopK<Long> products;
+        private final SpaceSavingTopK<String> categoryItems;
+        private final SpaceSavingTopK<String> categoryRevenueCents;
+        private final HyperLogLog buyers = new HyperLogLog();
+
+        private DayBucket(int capacity) {
+            this.products = new SpaceSavingTopK<>(capacity);
+            this.categoryItems = new SpaceSavingTopK<>(capacity);
+            this.categoryRevenueCents = new SpaceSavingTopK<>(capacity);
+        }
+    }
+}
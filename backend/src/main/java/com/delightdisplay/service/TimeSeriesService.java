@@ -0,0 +1,208 @@
+package com.delightdisplay.service;
+
+import com.delightdisplay.config.ReportingQuery;
+import com.delightdisplay.dto.TimeSeriesDto;
+import com.delightdisplay.entity.Order;
+import com.delightdisplay.entity.OrderHourlyStat;
+import com.delightdisplay.exception.BadRequestException;
+import com.delightdisplay.repository.OrderHourlyStatRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hourly order/revenue buckets behind the admin time-series chart. Checkouts only add to an
+ * in-memory delta per hour once their transaction commits; the deltas are upserted on a short
+ * interval, so order creation never queues on the lock of the current hour's row. Deltas lost
+ * to a crash, or counted twice around a backfill, are corrected by periodically recomputing the
+ * most recent hours from {@code orders}.
+ */
+@Service
+@Slf4j
+public class TimeSeriesService {
+    private static final int MAX_DAYS = 3650;
+    private static final int MAX_POINTS = 10000;
+
+    private final OrderHourlyStatRepository hourlyStatRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ConcurrentHashMap<LocalDateTime, Delta> pending = new ConcurrentHashMap<>();
+    private final Duration reconcileWindow;
+
+    public TimeSeriesService(OrderHourlyStatRepository hourlyStatRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.analytics.time-series.reconcile-window:6h}") Duration reconcileWindow) {
+        this.hourlyStatRepository = hourlyStatRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reconcileWindow = reconcileWindow;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfill() {
+        if (hourlyStatRepository.count() == 0) {
+            int buckets = hourlyStatRepository.rebuildFromOrders();
+            log.info("Backfilled {} hourly order buckets", buckets);
+        }
+    }
+
+    public void recordOrder(Order order) {
+        LocalDateTime createdAt = order.getCreatedAt() != null ? order.getCreatedAt() : LocalDateTime.now();
+        LocalDateTime bucketStart = createdAt.truncatedTo(ChronoUnit.HOURS);
+        Delta delta = new Delta(1, order.getTotalAmount());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pending.merge(bucketStart, delta, Delta::plus);
+                }
+            });
+        } else {
+            pending.merge(bucketStart, delta, Delta::plus);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics.time-series.flush-interval:5000}")
+    public void flush() {
+        for (LocalDateTime bucketStart : pending.keySet()) {
+            Delta delta = pending.remove(bucketStart);
+            if (delta == null) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> hourlyStatRepository
+                        .recordOrders(bucketStart, delta.orders(), delta.revenue()));
+            } catch (RuntimeException e) {
+                // Keep the delta for the next flush rather than losing the hour's orders
+                pending.merge(bucketStart, delta, Delta::plus);
+                log.warn("Failed to flush hourly order stats for {}", bucketStart, e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Recomputes the buckets of the last reconcile-window from {@code orders}, after flushing
+     * what is pending so the recomputed values are not added to again.
+     */
+    @Scheduled(fixedDelayString = "${app.analytics.time-series.reconcile-interval:600000}",
+            initialDelayString = "${app.analytics.time-series.reconcile-interval:600000}")
+    public void reconcile() {
+        flush();
+        LocalDateTime from = LocalDateTime.now().minus(reconcileWindow).truncatedTo(ChronoUnit.HOURS);
+        try {
+            Integer buckets = transactionTemplate.execute(status -> hourlyStatRepository.rebuildFromOrdersSince(from));
+            log.debug("Reconciled {} hourly order buckets since {}", buckets, from);
+        } catch (RuntimeException e) {
+            log.warn("Failed to reconcile hourly order stats since {}", from, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    @ReportingQuery
+    public TimeSeriesDto getTimeSeries(TimeSeriesDto.Granularity granularity, int days, int points) {
+        if (days < 1 || days > MAX_DAYS) {
+            throw new BadRequestException("days must be between 1 and " + MAX_DAYS);
+        }
+        if (points < 1 || points > MAX_POINTS) {
+            throw new BadRequestException("points must be between 1 and " + MAX_POINTS);
+        }
+
+        LocalDateTime to = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        LocalDateTime from = align(granularity, to.minusDays(days));
+
+        List<LocalDateTime> starts = new ArrayList<>();
+        for (LocalDateTime t = from; t.isBefore(to); t = next(granularity, t)) {
+            starts.add(t);
+        }
+        int n = starts.size();
+        long[] orders = new long[n];
+        BigDecimal[] revenue = new BigDecimal[n];
+        Arrays.fill(revenue, BigDecimal.ZERO);
+
+        int i = 0;
+        for (OrderHourlyStat stat : hourlyStatRepository
+                .findByBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStart(from, to)) {
+            while (i + 1 < n && !stat.getBucketStart().isBefore(starts.get(i + 1))) {
+                i++;
+            }
+            orders[i] += stat.getOrderCount();
+            revenue[i] = revenue[i].add(stat.getRevenue());
+        }
+
+        // Counts and revenue are additive, so downsampling sums runs of adjacent buckets
+        int perPoint = (n + points - 1) / points;
+        int m = (n + perPoint - 1) / perPoint;
+        long[] sampledTimestamps = new long[m];
+        long[] sampledOrders = new long[m];
+        BigDecimal[] sampledRevenue = new BigDecimal[m];
+        ZoneId zone = ZoneId.systemDefault();
+        for (int p = 0; p < m; p++) {
+            int start = p * perPoint;
+            int end = Math.min(start + perPoint, n);
+            sampledTimestamps[p] = starts.get(start).atZone(zone).toInstant().toEpochMilli();
+            BigDecimal sum = BigDecimal.ZERO;
+            for (int j = start; j < end; j++) {
+                sampledOrders[p] += orders[j];
+                sum = sum.add(revenue[j]);
+            }
+            sampledRevenue[p] = sum;
+        }
+
+        return TimeSeriesDto.builder()
+                .bucket(granularity)
+                .bucketsPerPoint(perPoint)
+                .timestamps(sampledTimestamps)
+                .orders(sampledOrders)
+                .revenue(sampledRevenue)
+                .build();
+    }
+
+    private LocalDateTime align(TimeSeriesDto.Granularity granularity, LocalDateTime time) {
+        return switch (granularity) {
+            case HOUR -> time.truncatedTo(ChronoUnit.HOURS);
+            case DAY -> time.truncatedTo(ChronoUnit.DAYS);
+            case WEEK -> time.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+        };
+    }
+
+    private LocalDateTime next(TimeSeriesDto.Granularity granularity, LocalDateTime time) {
+        return switch (granularity) {
+            case HOUR -> time.plusHours(1);
+            case DAY -> time.plusDays(1);
+            case WEEK -> time.plusWeeks(1);
+            case MONTH -> time.plusMonths(1);
+        };
+    }
+
+    private record Delta(long orders, BigDecimal revenue) {
+        private Delta plus(Delta other) {
+            return new Delta(orders + other.orders, revenue.add(other.revenue));
+        }
+    }
+}
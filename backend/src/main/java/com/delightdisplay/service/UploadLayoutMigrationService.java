@@ -0,0 +1,216 @@
+package com.delightdisplay.service;
+
+import com.delightdisplay.dto.UploadLayoutMigrationReportDto;
+import com.delightdisplay.exception.BadRequestException;
+import com.delightdisplay.service.storage.StorageBackend;
+import com.delightdisplay.service.storage.StorageKeys;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.NoSuchFileException;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves uploads from the flat {@code <type>/<file>} layout into the sharded one (see
+ * {@link StorageKeys}) while the application keeps serving. Each batch first rewrites the
+ * database references (image columns and {@code stored_files}) in one transaction, then moves
+ * the files in parallel. Until both halves are done a URL in either layout still resolves,
+ * because serving and deletes fall back to the other layout. The run keeps no state: a rerun
+ * lists what is still flat and carries on, and rewriting references that were already
+ * rewritten changes nothing.
+ */
+@Service
+@Slf4j
+public class UploadLayoutMigrationService {
+    private static final List<String> REFERENCE_UPDATES = List.of(
+            referenceUpdate("products", "image"),
+            referenceUpdate("product_images", "image_url"),
+            referenceUpdate("categories", "image_url"),
+            referenceUpdate("users", "avatar"));
+    // The same content may already have a row under its sharded key (uploaded again after the
+    // layout changed): fold the old row's references into it, then rename whatever is left
+    private static final List<String> STORED_FILE_UPDATES = List.of(
+            "UPDATE stored_files s SET ref_count = s.ref_count + o.ref_count "
+                    + "FROM unnest(?, ?) AS m(old_path, new_path) JOIN stored_files o ON o.path = m.old_path "
+                    + "WHERE s.path = m.new_path",
+            "DELETE FROM stored_files o USING unnest(?, ?) AS m(old_path, new_path) "
+                    + "WHERE o.path = m.old_path AND EXISTS (SELECT 1 FROM stored_files s WHERE s.path = m.new_path)",
+            "UPDATE stored_files o SET path = m.new_path FROM unnest(?, ?) AS m(old_path, new_path) "
+                    + "WHERE o.path = m.old_path");
+
+    private final StorageBackend storageBackend;
+    private final ImageServingService imageServingService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${app.upload.migration.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.upload.migration.threads:4}")
+    private int threads;
+
+    @Value("${app.upload.migration.pause-between-batches:200ms}")
+    private Duration pauseBetweenBatches;
+
+    public UploadLayoutMigrationService(StorageBackend storageBackend, ImageServingService imageServingService,
+            JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.storageBackend = storageBackend;
+        this.imageServingService = imageServingService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    public UploadLayoutMigrationReportDto migrate(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            throw new BadRequestException("Upload layout migration already in progress");
+        }
+        long started = System.currentTimeMillis();
+        try {
+            ConcurrentLinkedQueue<String> legacy = new ConcurrentLinkedQueue<>();
+            LongAdder scanned = new LongAdder();
+            try {
+                storageBackend.list(object -> {
+                    scanned.increment();
+                    if (StorageKeys.isLegacy(object.key())) {
+                        legacy.add(object.key());
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            List<String> keys = new ArrayList<>(legacy);
+            long moved = 0;
+            long referencesUpdated = 0;
+            long failed = 0;
+            if (!dryRun && !keys.isEmpty()) {
+                ExecutorService executor = newExecutor();
+                try {
+                    for (int from = 0; from < keys.size(); from += batchSize) {
+                        List<String> batch = keys.subList(from, Math.min(from + batchSize, keys.size()));
+                        Long updated = transactionTemplate.execute(status -> rewriteReferences(batch));
+                        referencesUpdated += updated != null ? updated : 0;
+                        int movedInBatch = moveAll(batch, executor);
+                        moved += movedInBatch;
+                        failed += batch.size() - movedInBatch;
+                        if (from + batchSize < keys.size()) {
+                            Thread.sleep(pauseBetweenBatches.toMillis());
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    executor.shutdownNow();
+                }
+                meterRegistry.counter("uploads.migration.moved").increment(moved);
+                log.info("Upload layout migration moved {} of {} files, rewrote {} references, {} failed",
+                        moved, keys.size(), referencesUpdated, failed);
+            }
+
+            return UploadLayoutMigrationReportDto.builder()
+                    .dryRun(dryRun)
+                    .scanned(scanned.sum())
+                    .legacy(keys.size())
+                    .moved(moved)
+                    .referencesUpdated(referencesUpdated)
+                    .failed(failed)
+                    .durationMs(System.currentTimeMillis() - started)
+                    .build();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private long rewriteReferences(List<String> batch) {
+        String[] oldKeys = batch.toArray(String[]::new);
+        String[] newKeys = batch.stream().map(StorageKeys::alternate).toArray(String[]::new);
+
+        long updated = 0;
+        for (String sql : REFERENCE_UPDATES) {
+            updated += update(sql, oldKeys, newKeys);
+        }
+        for (String sql : STORED_FILE_UPDATES) {
+            update(sql, oldKeys, newKeys);
+        }
+        return updated;
+    }
+
+    // Matches a column the way StorageKeys.fromUrl reads it and swaps only the key, so a host
+    // prefix or query string on the stored URL survives the rewrite
+    private static String referenceUpdate(String table, String column) {
+        String keyStart = "position('" + StorageKeys.URL_MARKER + "' in t." + column + ") + "
+                + StorageKeys.URL_MARKER.length();
+        return "UPDATE " + table + " t SET " + column + " = overlay(t." + column + " placing m.new_key from "
+                + keyStart + " for length(m.old_key)) FROM unnest(?, ?) AS m(old_key, new_key) "
+                + "WHERE t." + column + " LIKE '%" + StorageKeys.URL_MARKER + "%' "
+                + "AND split_part(substring(t." + column + " from " + keyStart + "), '?', 1) = m.old_key";
+    }
+
+    private int update(String sql, String[] oldValues, String[] newValues) {
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            Array oldArray = con.createArrayOf("text", oldValues);
+            Array newArray = con.createArrayOf("text", newValues);
+            ps.setArray(1, oldArray);
+            ps.setArray(2, newArray);
+            return ps;
+        });
+    }
+
+    private int moveAll(List<String> batch, ExecutorService executor) {
+        AtomicInteger moved = new AtomicInteger();
+        CompletableFuture.allOf(batch.stream()
+                .map(key -> CompletableFuture.runAsync(() -> {
+                    if (move(key)) {
+                        moved.incrementAndGet();
+                    }
+                }, executor))
+                .toArray(CompletableFuture[]::new))
+                .join();
+        return moved.get();
+    }
+
+    private boolean move(String key) {
+        try {
+            storageBackend.move(key, StorageKeys.alternate(key));
+            imageServingService.evict(key);
+            return true;
+        } catch (NoSuchFileException e) {
+            // Deleted or moved by someone else since the listing
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not move {} to the sharded layout: {}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    private ExecutorService newExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "upload-migration-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,338 @@
+package com.delightdisplay.service;
+
+import com.delightdisplay.dto.UserImportResultDto;
+import com.delightdisplay.entity.User;
+import com.delightdisplay.exception.BadRequestException;
+import com.delightdisplay.security.PasswordHashingService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Streams users from a CSV or NDJSON body into the users, carts and wishlists tables in JDBC
+ * batches. Passwords are hashed in parallel on the password hashing pool; values that are
+ * already BCrypt hashes are stored as-is.
+ */
+@Service
+@Slf4j
+public class UserImportService {
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("^\\$2[aby]?\\$\\d{2}\\$[./A-Za-z0-9]{53}$");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PasswordHashingService passwordHashingService;
+    private final EmailService emailService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.users.import.batch-size:500}")
+    private int batchSize;
+
+    public UserImportService(JdbcTemplate jdbcTemplate, PasswordHashingService passwordHashingService,
+            EmailService emailService, ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.passwordHashingService = passwordHashingService;
+        this.emailService = emailService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    public UserImportResultDto importUsers(InputStream body, Format format, boolean sendWelcomeEmails) {
+        long startedAt = System.currentTimeMillis();
+        Run run = new Run(loadExistingEmails(), sendWelcomeEmails);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            Map<String, Integer> columns = format == Format.CSV ? readCsvHeader(reader.readLine()) : null;
+            int lineNumber = format == Format.CSV ? 1 : 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                run.rows++;
+                ImportRow row;
+                try {
+                    row = format == Format.CSV ? parseCsvRow(line, columns, lineNumber) : parseJsonRow(line, lineNumber);
+                } catch (IllegalArgumentException e) {
+                    run.reject(lineNumber, e.getMessage());
+                    continue;
+                }
+                accept(run, row);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read import body", e);
+        }
+        flush(run);
+
+        long durationMs = System.currentTimeMillis() - startedAt;
+        log.info("User import: {} rows, {} imported, {} duplicates, {} invalid in {} ms",
+                run.rows, run.imported, run.duplicates, run.invalid, durationMs);
+        return UserImportResultDto.builder()
+                .rows(run.rows)
+                .imported(run.imported)
+                .duplicates(run.duplicates)
+                .invalid(run.invalid)
+                .errors(run.errors)
+                .welcomeEmailsQueued(sendWelcomeEmails && run.imported > 0)
+                .durationMs(durationMs)
+                .build();
+    }
+
+    private void accept(Run run, ImportRow row) {
+        String problem = validate(row);
+        if (problem != null) {
+            run.reject(row.line(), problem);
+            return;
+        }
+        if (!run.knownEmails.add(row.email().toLowerCase(Locale.ROOT))) {
+            run.duplicates++;
+            return;
+        }
+        run.pending.add(row);
+        if (run.pending.size() >= batchSize) {
+            flush(run);
+        }
+    }
+
+    private void flush(Run run) {
+        if (run.pending.isEmpty()) {
+            return;
+        }
+        List<ImportRow> batch = List.copyOf(run.pending);
+        run.pending.clear();
+
+        List<String> plain = new ArrayList<>();
+        for (ImportRow row : batch) {
+            if (!BCRYPT_PATTERN.matcher(row.password()).matches()) {
+                plain.add(row.password());
+            }
+        }
+        List<String> hashed = passwordHashingService.encodeAll(plain);
+        String[] hashes = new String[batch.size()];
+        for (int i = 0, next = 0; i < batch.size(); i++) {
+            String password = batch.get(i).password();
+            hashes[i] = BCRYPT_PATTERN.matcher(password).matches() ? password : hashed.get(next++);
+        }
+
+        int[] counts = transactionTemplate.execute(status -> insertBatch(batch, hashes));
+        List<User> created = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (counts[i] > 0) {
+                run.imported++;
+                if (run.sendWelcomeEmails) {
+                    created.add(User.builder().email(batch.get(i).email()).name(batch.get(i).name()).build());
+                }
+            } else {
+                // Registered concurrently since the email set was loaded
+                run.duplicates++;
+            }
+        }
+        if (!created.isEmpty()) {
+            emailService.sendWelcomeEmails(created);
+        }
+    }
+
+    private int[] insertBatch(List<ImportRow> batch, String[] hashes) {
+        int[] counts = jdbcTemplate.batchUpdate(
+                "INSERT INTO users (email, password, name, phone, address, role, enabled, token_version, " +
+                        "created_at, updated_at) VALUES (?, ?, ?, ?, ?, 'CUSTOMER', true, 0, now(), now()) " +
+                        "ON CONFLICT (email) DO NOTHING",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ImportRow row = batch.get(i);
+                        ps.setString(1, row.email());
+                        ps.setString(2, hashes[i]);
+                        ps.setString(3, row.name());
+                        ps.setString(4, row.phone());
+                        ps.setString(5, row.address());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batch.size();
+                    }
+                });
+
+        String[] emails = batch.stream().map(ImportRow::email).toArray(String[]::new);
+        for (String table : List.of("carts", "wishlists")) {
+            jdbcTemplate.update("INSERT INTO " + table + " (user_id, created_at, updated_at) " +
+                    "SELECT u.id, now(), now() FROM users u WHERE u.email = ANY(?) " +
+                    "AND NOT EXISTS (SELECT 1 FROM " + table + " t WHERE t.user_id = u.id)",
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", emails)));
+        }
+        return counts;
+    }
+
+    private Set<String> loadExistingEmails() {
+        Set<String> emails = new HashSet<>();
+        jdbcTemplate.query("SELECT email FROM users",
+                rs -> {
+                    emails.add(rs.getString(1).toLowerCase(Locale.ROOT));
+                });
+        return emails;
+    }
+
+    private static String validate(ImportRow row) {
+        if (row.email() == null || !EMAIL_PATTERN.matcher(row.email()).matches()) {
+            return "invalid email";
+        }
+        if (row.password() == null || row.password().isEmpty()) {
+            return "password is required";
+        }
+        if (row.password().length() < 8 && !BCRYPT_PATTERN.matcher(row.password()).matches()) {
+            return "password must be at least 8 characters";
+        }
+        if (row.name() == null || row.name().isBlank()) {
+            return "name is required";
+        }
+        return null;
+    }
+
+    private static Map<String, Integer> readCsvHeader(String header) {
+        if (header == null) {
+            throw new BadRequestException("CSV body is empty");
+        }
+        List<String> names = splitCsv(header.replace("\uFEFF", ""));
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : List.of("email", "password", "name")) {
+            if (!columns.containsKey(required)) {
+                throw new BadRequestException("CSV header must include email, password and name");
+            }
+        }
+        return columns;
+    }
+
+    private static ImportRow parseCsvRow(String line, Map<String, Integer> columns, int lineNumber) {
+        List<String> values = splitCsv(line);
+        return new ImportRow(lineNumber,
+                csvValue(values, columns, "email"),
+                csvValue(values, columns, "password"),
+                csvValue(values, columns, "name"),
+                csvValue(values, columns, "phone"),
+                csvValue(values, columns, "address"));
+    }
+
+    private static String csvValue(List<String> values, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // RFC 4180 fields on a single line: quoted fields may contain commas and doubled quotes
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private ImportRow parseJsonRow(String line, int lineNumber) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("malformed JSON");
+        }
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("expected a JSON object");
+        }
+        return new ImportRow(lineNumber, jsonValue(node, "email"), jsonValue(node, "password"),
+                jsonValue(node, "name"), jsonValue(node, "phone"), jsonValue(node, "address"));
+    }
+
+    private static String jsonValue(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        String text = value.asText().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private record ImportRow(int line, String email, String password, String name, String phone,
+            String address) {
+    }
+
+    private static final class Run {
+        private final Set<String> knownEmails;
+        private final boolean sendWelcomeEmails;
+        private final List<ImportRow> pending = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+        private long rows;
+        private long imported;
+        private long duplicates;
+        private long invalid;
+
+        private Run(Set<String> knownEmails, boolean sendWelcomeEmails) {
+            this.knownEmails = knownEmails;
+            this.sendWelcomeEmails = sendWelcomeEmails;
+        }
+
+        private void reject(int line, String reason) {
+            invalid++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("line " + line + ": " + reason);
+            }
+        }
+    }
+}
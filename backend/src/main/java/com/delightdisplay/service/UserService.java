@@ -6,9 +6,13 @@ import com.delightdisplay.entity.User;
 import com.delightdisplay.exception.BadRequestException;
 import com.delightdisplay.exception.ResourceNotFoundException;
 import com.delightdisplay.repository.UserRepository;
+import com.delightdisplay.security.AuthenticatedUser;
+import com.delightdisplay.security.PrincipalCache;
+import com.delightdisplay.security.TokenVersionRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -19,11 +23,47 @@ import org.springframework.transaction.annotation.Transactional;
 public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalCache principalCache;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final RefreshTokenService refreshTokenService;
 
     public User getCurrentUser() {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        AuthenticatedUser principal = getCurrentPrincipal();
+        if (!principal.isProfileLoaded()) {
+            principal = principalCache.get(principal.getEmail());
+            if (principal == null) {
+                throw new ResourceNotFoundException("User not found");
+            }
+        }
+        return principal.toUser();
+    }
+
+    public Long getCurrentUserId() {
+        return getCurrentPrincipal().getId();
+    }
+
+    public boolean isCurrentUserAdmin() {
+        return getCurrentPrincipal().getRole() == User.Role.ADMIN;
+    }
+
+    /**
+     * Returns an uninitialized reference to the user, for use as an association target
+     * without loading the row.
+     */
+    public User getUserReference(Long id) {
+        return userRepository.getReferenceById(id);
+    }
+
+    private AuthenticatedUser getCurrentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal;
+        }
+        AuthenticatedUser principal = principalCache.get(authentication.getName());
+        if (principal == null) {
+            throw new ResourceNotFoundException("User not found");
+        }
+        return principal;
     }
 
     public UserDto getCurrentUserProfile() {
@@ -50,6 +90,7 @@ public class UserService {
                 throw new BadRequestException("Email already in use");
             }
             user.setEmail(request.getEmail());
+            tokenVersionRegistry.revoke(user);
         }
         if (request.getName() != null)
             user.setName(request.getName());
@@ -61,15 +102,17 @@ public class UserService {
             user.setAvatar(request.getAvatar());
         if (request.getPassword() != null) {
             user.setPassword(passwordEncoder.encode(request.getPassword()));
+            tokenVersionRegistry.revoke(user);
+            refreshTokenService.revokeAll(id);
         }
 
+        principalCache.evict(id);
         return UserDto.fromEntity(userRepository.save(user));
     }
 
     @Transactional
     public UserDto updateCurrentUser(UserUpdateRequest request) {
-        User user = getCurrentUser();
-        return updateUser(user.getId(), request);
+        return updateUser(getCurrentUserId(), request);
     }
 
     @Transactional
@@ -78,13 +121,19 @@ public class UserService {
             throw new ResourceNotFoundException("User not found");
         }
         userRepository.deleteById(id);
+        principalCache.evict(id);
+        tokenVersionRegistry.removed(id);
     }
 
     @Transactional
     public UserDto setUserRole(Long id, User.Role role) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-        user.setRole(role);
+        if (user.getRole() != role) {
+            user.setRole(role);
+            tokenVersionRegistry.revoke(user);
+        }
+        principalCache.evict(id);
         return UserDto.fromEntity(userRepository.save(user));
     }
 
@@ -93,6 +142,11 @@ public class UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
         user.setEnabled(!user.isEnabled());
+        if (!user.isEnabled()) {
+            tokenVersionRegistry.revoke(user);
+            refreshTokenService.revokeAll(id);
+        }
+        principalCache.evict(id);
         return UserDto.fromEntity(userRepository.save(user));
     }
 }
@@ -18,17 +18,17 @@ public class WishlistService {
     private final UserService userService;
 
     public WishlistDto getWishlist() {
-        User user = userService.getCurrentUser();
-        Wishlist wishlist = wishlistRepository.findByUserIdWithItems(user.getId())
-                .orElseGet(() -> createWishlistForUser(user));
+        Long userId = userService.getCurrentUserId();
+        Wishlist wishlist = wishlistRepository.findByUserIdWithItems(userId)
+                .orElseGet(() -> createWishlistForUser(userId));
         return WishlistDto.fromEntity(wishlist);
     }
 
     @Transactional
     public WishlistDto addToWishlist(String productId) {
-        User user = userService.getCurrentUser();
-        Wishlist wishlist = wishlistRepository.findByUserId(user.getId())
-                .orElseGet(() -> createWishlistForUser(user));
+        Long userId = userService.getCurrentUserId();
+        Wishlist wishlist = wishlistRepository.findByUserId(userId)
+                .orElseGet(() -> createWishlistForUser(userId));
 
         Long prodId = Long.parseLong(productId);
         Product product = productRepository.findById(prodId)
@@ -49,8 +49,8 @@ public class WishlistService {
 
     @Transactional
     public WishlistDto removeFromWishlist(String productId) {
-        User user = userService.getCurrentUser();
-        Wishlist wishlist = wishlistRepository.findByUserId(user.getId())
+        Long userId = userService.getCurrentUserId();
+        Wishlist wishlist = wishlistRepository.findByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Wishlist not found"));
 
         Long prodId = Long.parseLong(productId);
@@ -59,8 +59,8 @@ public class WishlistService {
     }
 
     public boolean isInWishlist(String productId) {
-        User user = userService.getCurrentUser();
-        Wishlist wishlist = wishlistRepository.findByUserId(user.getId()).orElse(null);
+        Long userId = userService.getCurrentUserId();
+        Wishlist wishlist = wishlistRepository.findByUserId(userId).orElse(null);
         if (wishlist == null)
             return false;
 
@@ -70,15 +70,15 @@ public class WishlistService {
 
     @Transactional
     public void clearWishlist() {
-        User user = userService.getCurrentUser();
-        Wishlist wishlist = wishlistRepository.findByUserId(user.getId())
+        Long userId = userService.getCurrentUserId();
+        Wishlist wishlist = wishlistRepository.findByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Wishlist not found"));
         wishlist.getItems().clear();
         wishlistRepository.save(wishlist);
     }
 
-    private Wishlist createWishlistForUser(User user) {
-        Wishlist wishlist = Wishlist.builder().user(user).build();
+    private Wishlist createWishlistForUser(Long userId) {
+        Wishlist wishlist = Wishlist.builder().user(userService.getUserReference(userId)).build();
         return wishlistRepository.save(wishlist);
     }
 }
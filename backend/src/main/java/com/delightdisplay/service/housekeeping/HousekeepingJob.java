@@ -0,0 +1,12 @@
+package com.delightdisplay.service.housekeeping;
+
+/**
+ * A purge task run by {@link HousekeepingService}. Implementations delete at most {@code limit}
+ * rows per call; the runner repeats the call in separate short transactions until a batch comes
+ * back smaller than the limit.
+ */
+public interface HousekeepingJob {
+    String name();
+
+    int purgeBatch(int limit);
+}
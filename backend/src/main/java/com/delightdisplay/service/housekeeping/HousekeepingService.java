@@ -0,0 +1,83 @@
+package com.delightdisplay.service.housekeeping;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Runs every {@link HousekeepingJob} bean on a schedule. Each batch is its own short
+ * transaction and batches are separated by a pause, so purges never hold row locks for long
+ * or saturate the database.
+ */
+@Service
+@Slf4j
+public class HousekeepingService {
+    private final List<HousekeepingJob> jobs;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.housekeeping.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.housekeeping.pause-between-batches:200ms}")
+    private Duration pauseBetweenBatches;
+
+    @Value("${app.housekeeping.max-batches-per-run:500}")
+    private int maxBatchesPerRun;
+
+    public HousekeepingService(List<HousekeepingJob> jobs, PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry) {
+        this.jobs = jobs;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Scheduled(cron = "${app.housekeeping.cron:0 30 3 * * *}")
+    public void runAll() {
+        for (HousekeepingJob job : jobs) {
+            try {
+                run(job);
+            } catch (RuntimeException e) {
+                log.error("Housekeeping job {} failed", job.name(), e);
+                meterRegistry.counter("housekeeping.failures", "job", job.name()).increment();
+            }
+        }
+    }
+
+    public long run(HousekeepingJob job) {
+        Counter purged = meterRegistry.counter("housekeeping.rows.purged", "job", job.name());
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long total = 0;
+        int batches = 0;
+        try {
+            while (batches < maxBatchesPerRun) {
+                Integer deleted = transactionTemplate.execute(status -> job.purgeBatch(batchSize));
+                int count = deleted != null ? deleted : 0;
+                batches++;
+                total += count;
+                purged.increment(count);
+                if (count < batchSize) {
+                    break;
+                }
+                Thread.sleep(pauseBetweenBatches.toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            sample.stop(meterRegistry.timer("housekeeping.run", "job", job.name()));
+        }
+        if (total > 0) {
+            log.info("Housekeeping job {} purged {} rows in {} batches", job.name(), total, batches);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,281 @@
+package com.delightdisplay.service.housekeeping;
+
+import com.delightdisplay.dto.OrphanUploadReportDto;
+import com.delightdisplay.exception.BadRequestException;
+import com.delightdisplay.service.ImageProcessingService;
+import com.delightdisplay.service.ImageServingService;
+import com.delightdisplay.service.storage.StorageBackend;
+import com.delightdisplay.service.storage.StorageKeys;
+import com.delightdisplay.service.storage.StorageObject;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Deletes uploads no entity points at any more. A run lists every stored object, keeps those
+ * older than the grace period, then streams the image columns of products, product_images,
+ * categories and users to find the ones still referenced. An original and its derivatives and
+ * format variants share a base name and are kept or dropped together. Each batch drops its
+ * {@code stored_files} rows in a short transaction, then deletes the objects after it commits,
+ * with a pause between batches. Off by default; run it with {@code dryRun} first.
+ */
+@Service
+@Slf4j
+public class OrphanUploadCollector {
+    private static final List<String> REFERENCE_QUERIES = List.of(
+            "SELECT image FROM products WHERE image IS NOT NULL",
+            "SELECT image_url FROM product_images WHERE image_url IS NOT NULL",
+            "SELECT image_url FROM categories WHERE image_url IS NOT NULL",
+            "SELECT avatar FROM users WHERE avatar IS NOT NULL");
+    private static final Pattern VARIANT_SUFFIX = Pattern.compile("_(" + String.join("|",
+            Arrays.stream(ImageProcessingService.Variant.values())
+                    .map(ImageProcessingService.Variant::getSuffix)
+                    .toList()) + ")$");
+
+    private final StorageBackend storageBackend;
+    private final ImageServingService imageServingService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${app.upload.gc.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.upload.gc.grace-period:48h}")
+    private Duration gracePeriod;
+
+    @Value("${app.upload.gc.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.upload.gc.pause-between-batches:500ms}")
+    private Duration pauseBetweenBatches;
+
+    @Value("${app.upload.gc.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${app.upload.gc.report-limit:100}")
+    private int reportLimit;
+
+    public OrphanUploadCollector(StorageBackend storageBackend, ImageServingService imageServingService,
+            JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.storageBackend = storageBackend;
+        this.imageServingService = imageServingService;
+        this.jdbcTemplate = jdbcTemplate;
+        // Read-write on purpose: references must come from the primary, not a lagging replica
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Scheduled(cron = "${app.upload.gc.cron:0 0 4 * * *}")
+    public void scheduledRun() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            OrphanUploadReportDto report = collect(false);
+            if (report.getDeleted() > 0) {
+                log.info("Upload GC deleted {} of {} files ({} bytes)", report.getDeleted(), report.getScanned(),
+                        report.getOrphanedBytes());
+            }
+        } catch (BadRequestException e) {
+            log.info("Skipping upload GC: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Upload GC failed", e);
+            meterRegistry.counter("housekeeping.failures", "job", "orphan-uploads").increment();
+        }
+    }
+
+    public OrphanUploadReportDto collect(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            throw new BadRequestException("Upload GC already in progress");
+        }
+        long started = System.currentTimeMillis();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            Instant cutoff = Instant.now().minus(gracePeriod);
+
+            // List before reading references, so a reference written mid-run is still seen
+            ConcurrentLinkedQueue<StorageObject> listed = new ConcurrentLinkedQueue<>();
+            try {
+                storageBackend.list(listed::add);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            Map<String, List<StorageObject>> groups = new HashMap<>();
+            for (StorageObject object : listed) {
+                groups.computeIfAbsent(baseName(object.key()), name -> new ArrayList<>()).add(object);
+            }
+
+            // A group goes only when nothing references it and every member is past the grace period
+            Set<String> referenced = loadReferences();
+            List<List<StorageObject>> orphans = new ArrayList<>();
+            long orphanedFiles = 0;
+            long orphanedBytes = 0;
+            for (Map.Entry<String, List<StorageObject>> group : groups.entrySet()) {
+                if (referenced.contains(group.getKey()) || group.getValue().stream()
+                        .anyMatch(object -> object.lastModified() >= cutoff.toEpochMilli())) {
+                    continue;
+                }
+                orphans.add(group.getValue());
+                for (StorageObject object : group.getValue()) {
+                    orphanedFiles++;
+                    orphanedBytes += object.length();
+                }
+            }
+
+            long deleted = dryRun ? 0 : delete(orphans, cutoff);
+            return OrphanUploadReportDto.builder()
+                    .dryRun(dryRun)
+                    .scanned(listed.size())
+                    .referenced(referenced.size())
+                    .orphaned(orphanedFiles)
+                    .orphanedBytes(orphanedBytes)
+                    .deleted(deleted)
+                    .sample(orphans.stream().flatMap(List::stream).limit(reportLimit)
+                            .map(StorageObject::key).sorted().toList())
+                    .durationMs(System.currentTimeMillis() - started)
+                    .build();
+        } finally {
+            sample.stop(meterRegistry.timer("housekeeping.run", "job", "orphan-uploads"));
+            running.set(false);
+        }
+    }
+
+    private Set<String> loadReferences() {
+        Set<String> referenced = new HashSet<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (String sql : REFERENCE_QUERIES) {
+                jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                            ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(fetchSize);
+                    return ps;
+                }, (ResultSet rs) -> {
+                    String key = StorageKeys.fromUrl(rs.getString(1));
+                    if (key != null) {
+                        referenced.add(baseName(key));
+                    }
+                });
+            }
+        });
+        return referenced;
+    }
+
+    private long delete(List<List<StorageObject>> orphans, Instant cutoff) {
+        long deleted = 0;
+        for (int from = 0; from < orphans.size(); from += batchSize) {
+            List<List<StorageObject>> batch = orphans.subList(from, Math.min(from + batchSize, orphans.size()));
+            List<List<StorageObject>> released = transactionTemplate.execute(status -> releaseBatch(batch, cutoff));
+            deleted += deleteObjects(released != null ? released : List.of());
+            if (from + batchSize < orphans.size()) {
+                try {
+                    Thread.sleep(pauseBetweenBatches.toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        meterRegistry.counter("uploads.gc.deleted").increment(deleted);
+        return deleted;
+    }
+
+    // Locks the batch's stored_files rows (only originals have one) and drops those of groups with
+    // no recent use. An upload deduplicating onto one of these files either waits for this
+    // transaction and then writes the file afresh, or got there first and keeps its whole group
+    private List<List<StorageObject>> releaseBatch(List<List<StorageObject>> batch, Instant cutoff) {
+        String[] keys = batch.stream().flatMap(List::stream).map(StorageObject::key).toArray(String[]::new);
+        Set<String> recentlyUsed = new HashSet<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT path, last_used_at FROM stored_files WHERE path = ANY(?) FOR UPDATE");
+            ps.setArray(1, con.createArrayOf("varchar", keys));
+            return ps;
+        }, (ResultSet rs) -> {
+            Timestamp lastUsedAt = rs.getTimestamp(2);
+            if (lastUsedAt != null && lastUsedAt.toInstant().isAfter(cutoff)) {
+                recentlyUsed.add(rs.getString(1));
+            }
+        });
+
+        List<List<StorageObject>> removable = batch.stream()
+                .filter(group -> group.stream().noneMatch(object -> recentlyUsed.contains(object.key())))
+                .toList();
+        removeRows(removable.stream().flatMap(List::stream).map(StorageObject::key).toArray(String[]::new));
+        return removable;
+    }
+
+    // Runs after the rows are gone and the locks released, so slow or remote deletes hold no
+    // connection; a group a new upload has taken a reference on since then is left alone
+    private long deleteObjects(List<List<StorageObject>> groups) {
+        long deleted = 0;
+        for (List<StorageObject> group : groups) {
+            String[] keys = group.stream().map(StorageObject::key).toArray(String[]::new);
+            if (hasRows(keys)) {
+                continue;
+            }
+            for (String key : keys) {
+                try {
+                    storageBackend.delete(key);
+                    imageServingService.evict(key);
+                    deleted++;
+                } catch (IOException e) {
+                    log.warn("Upload GC could not delete {}: {}", key, e.getMessage());
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private void removeRows(String[] keys) {
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("DELETE FROM stored_files WHERE path = ANY(?)");
+            ps.setArray(1, con.createArrayOf("varchar", keys));
+            return ps;
+        });
+    }
+
+    private boolean hasRows(String[] keys) {
+        Boolean exists = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT EXISTS (SELECT 1 FROM stored_files WHERE path = ANY(?))");
+            ps.setArray(1, con.createArrayOf("varchar", keys));
+            return ps;
+        }, (ResultSet rs) -> rs.next() && rs.getBoolean(1));
+        return Boolean.TRUE.equals(exists);
+    }
+
+    // products/<hash>_card.jpg, products/<hash>.webp and products/<hash>.jpg all map to products/<hash>,
+    // taken in the sharded layout so flat references still match moved files and vice versa
+    private static String baseName(String key) {
+        String canonical = StorageKeys.canonical(key);
+        int dot = canonical.lastIndexOf('.');
+        String base = dot > canonical.lastIndexOf('/') ? canonical.substring(0, dot) : canonical;
+        return VARIANT_SUFFIX.matcher(base).replaceFirst("");
+    }
+}
@@ -0,0 +1,23 @@
+package com.delightdisplay.service.housekeeping;
+
+import com.delightdisplay.repository.PasswordResetTokenRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+@Component
+@RequiredArgsConstructor
+public class PasswordResetTokenPurgeJob implements HousekeepingJob {
+    private final PasswordResetTokenRepository passwordResetTokenRepository;
+
+    @Override
+    public String name() {
+        return "password-reset-tokens";
+    }
+
+    @Override
+    public int purgeBatch(int limit) {
+        return passwordResetTokenRepository.deleteExpiredOrUsedBatch(LocalDateTime.now(), limit);
+    }
+}
@@ -0,0 +1,23 @@
+package com.delightdisplay.service.housekeeping;
+
+import com.delightdisplay.repository.RefreshTokenRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+@Component
+@RequiredArgsConstructor
+public class RefreshTokenPurgeJob implements HousekeepingJob {
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    @Override
+    public String name() {
+        return "refresh-tokens";
+    }
+
+    @Override
+    public int purgeBatch(int limit) {
+        return refreshTokenRepository.deleteExpiredBatch(LocalDateTime.now(), limit);
+    }
+}
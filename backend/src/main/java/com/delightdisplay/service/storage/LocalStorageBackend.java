@@ -0,0 +1,195 @@
+package com.delightdisplay.service.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Stores uploads under {@code app.upload.dir}. Files staged on the same filesystem are renamed
+ * into place rather than copied.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "local", matchIfMissing = true)
+@Slf4j
+public class LocalStorageBackend implements StorageBackend {
+    private final Path root;
+
+    public LocalStorageBackend(@Value("${app.upload.dir:uploads}") String uploadDir) throws IOException {
+        this.root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        log.info("Local storage at: {}", root);
+    }
+
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Staging directory on another filesystem: copy next to the target, then rename
+            Path temp = Files.createTempFile(target.getParent(), ".put-", ".tmp");
+            try {
+                Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.deleteIfExists(source);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    @Override
+    public Optional<StorageObject> stat(String key) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(resolve(key), BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return Optional.empty();
+            }
+            return Optional.of(new StorageObject(key, attributes.size(), attributes.lastModifiedTime().toMillis()));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public InputStream open(String key, long start, long end) throws IOException {
+        FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ);
+        try {
+            channel.position(start);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        InputStream in = Channels.newInputStream(channel);
+        return end < 0 ? in : new BoundedInputStream(in, end - start + 1);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public void move(String from, String to) throws IOException {
+        Path source = resolve(from);
+        Path target = resolve(to);
+        Files.createDirectories(target.getParent());
+        if (Files.exists(target)) {
+            if (!Files.deleteIfExists(source)) {
+                throw new NoSuchFileException(from);
+            }
+            return;
+        }
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target);
+        }
+    }
+
+    /**
+     * Walks the tree with one {@link Files#walkFileTree} per second-level directory (for example
+     * each shard of {@code products/}), running the walks in parallel.
+     */
+    @Override
+    public void list(Consumer<StorageObject> visitor) throws IOException {
+        List<Path> roots = new ArrayList<>();
+        try (DirectoryStream<Path> topLevel = Files.newDirectoryStream(root, entry -> !isHidden(entry))) {
+            for (Path directory : topLevel) {
+                if (!Files.isDirectory(directory)) {
+                    continue;
+                }
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, entry -> !isHidden(entry))) {
+                    for (Path entry : entries) {
+                        if (Files.isDirectory(entry)) {
+                            roots.add(entry);
+                        } else {
+                            visit(entry, Files.readAttributes(entry, BasicFileAttributes.class), visitor);
+                        }
+                    }
+                }
+            }
+        }
+        try {
+            roots.parallelStream().forEach(directory -> walk(directory, visitor));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.of(resolve(key));
+    }
+
+    private void walk(Path directory, Consumer<StorageObject> visitor) {
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                    return isHidden(dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (attributes.isRegularFile() && !isHidden(file)) {
+                        visit(file, attributes, visitor);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    // Removed while walking
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void visit(Path file, BasicFileAttributes attributes, Consumer<StorageObject> visitor) {
+        String key = root.relativize(file).toString().replace('\\', '/');
+        visitor.accept(new StorageObject(key, attributes.size(), attributes.lastModifiedTime().toMillis()));
+    }
+
+    private static boolean isHidden(Path path) {
+        return path.getFileName().toString().startsWith(".");
+    }
+
+    private Path resolve(String key) {
+        if (!StorageBackend.isValidKey(key)) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        return path;
+    }
+}
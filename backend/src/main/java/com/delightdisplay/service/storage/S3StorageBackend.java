@@ -0,0 +1,244 @@
+package com.delightdisplay.service.storage;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Stores uploads in an S3-compatible bucket (AWS S3, MinIO, Ceph, R2...). Files above
+ * {@code multipart-threshold} are uploaded as parts in parallel; reads are streamed, with
+ * byte ranges passed through to the bucket.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "s3")
+@Slf4j
+public class S3StorageBackend implements StorageBackend {
+    private final S3Client s3;
+    private final String bucket;
+    private final String prefix;
+    private final long multipartThreshold;
+    private final long partSize;
+    private final ExecutorService partUploads;
+
+    public S3StorageBackend(
+            @Value("${app.storage.s3.bucket}") String bucket,
+            @Value("${app.storage.s3.region:us-east-1}") String region,
+            @Value("${app.storage.s3.endpoint:}") String endpoint,
+            @Value("${app.storage.s3.path-style-access:false}") boolean pathStyleAccess,
+            @Value("${app.storage.s3.access-key:}") String accessKey,
+            @Value("${app.storage.s3.secret-key:}") String secretKey,
+            @Value("${app.storage.s3.prefix:}") String prefix,
+            @Value("${app.storage.s3.multipart-threshold:16MB}") DataSize multipartThreshold,
+            @Value("${app.storage.s3.part-size:8MB}") DataSize partSize,
+            @Value("${app.storage.s3.upload-threads:4}") int uploadThreads) {
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .forcePathStyle(pathStyleAccess)
+                .credentialsProvider(StringUtils.hasText(accessKey)
+                        ? StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey))
+                        : DefaultCredentialsProvider.create());
+        if (StringUtils.hasText(endpoint)) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        this.s3 = builder.build();
+        this.bucket = bucket;
+        this.prefix = prefix.isEmpty() || prefix.endsWith("/") ? prefix : prefix + "/";
+        this.multipartThreshold = multipartThreshold.toBytes();
+        // S3 rejects parts under 5 MiB except the last one
+        this.partSize = Math.max(partSize.toBytes(), DataSize.ofMegabytes(5).toBytes());
+        AtomicInteger counter = new AtomicInteger();
+        this.partUploads = Executors.newFixedThreadPool(uploadThreads, r -> {
+            Thread thread = new Thread(r, "s3-upload-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("S3 storage: bucket {}, prefix '{}', endpoint {}", bucket, this.prefix,
+                StringUtils.hasText(endpoint) ? endpoint : "default");
+    }
+
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        long size = Files.size(source);
+        try {
+            if (size < multipartThreshold) {
+                s3.putObject(request -> request.bucket(bucket).key(objectKey(key)).contentType(contentType),
+                        RequestBody.fromFile(source));
+            } else {
+                putMultipart(objectKey(key), source, size, contentType);
+            }
+        } catch (SdkException e) {
+            throw new IOException("Failed to upload " + key + " to S3", e);
+        } finally {
+            Files.deleteIfExists(source);
+        }
+    }
+
+    @Override
+    public Optional<StorageObject> stat(String key) throws IOException {
+        try {
+            HeadObjectResponse head = s3.headObject(request -> request.bucket(bucket).key(objectKey(key)));
+            return Optional.of(new StorageObject(key, head.contentLength(), head.lastModified().toEpochMilli()));
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (S3Exception e) {
+            // HEAD responses carry no body, so a missing key shows up as a bare 404
+            if (e.statusCode() == 404) {
+                return Optional.empty();
+            }
+            throw new IOException("Failed to stat " + key + " in S3", e);
+        } catch (SdkException e) {
+            throw new IOException("Failed to stat " + key + " in S3", e);
+        }
+    }
+
+    @Override
+    public InputStream open(String key, long start, long end) throws IOException {
+        try {
+            return s3.getObject(request -> {
+                request.bucket(bucket).key(objectKey(key));
+                if (start > 0 || end >= 0) {
+                    request.range("bytes=" + start + "-" + (end >= 0 ? end : ""));
+                }
+            });
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(key);
+        } catch (SdkException e) {
+            throw new IOException("Failed to read " + key + " from S3", e);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            s3.deleteObject(request -> request.bucket(bucket).key(objectKey(key)));
+        } catch (SdkException e) {
+            throw new IOException("Failed to delete " + key + " from S3", e);
+        }
+    }
+
+    @Override
+    public void move(String from, String to) throws IOException {
+        try {
+            if (stat(to).isEmpty()) {
+                s3.copyObject(request -> request.sourceBucket(bucket).sourceKey(objectKey(from))
+                        .destinationBucket(bucket).destinationKey(objectKey(to)));
+            } else if (stat(from).isEmpty()) {
+                throw new NoSuchFileException(from);
+            }
+            s3.deleteObject(request -> request.bucket(bucket).key(objectKey(from)));
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(from);
+        } catch (SdkException e) {
+            throw new IOException("Failed to move " + from + " to " + to + " in S3", e);
+        }
+    }
+
+    @Override
+    public void list(Consumer<StorageObject> visitor) throws IOException {
+        try {
+            for (S3Object object : s3.listObjectsV2Paginator(request -> request.bucket(bucket).prefix(prefix)).contents()) {
+                String key = object.key().substring(prefix.length());
+                if (StorageBackend.isValidKey(key)) {
+                    visitor.accept(new StorageObject(key, object.size(), object.lastModified().toEpochMilli()));
+                }
+            }
+        } catch (SdkException e) {
+            throw new IOException("Failed to list S3 bucket " + bucket, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        partUploads.shutdownNow();
+        s3.close();
+    }
+
+    private void putMultipart(String objectKey, Path source, long size, String contentType) throws IOException {
+        String uploadId = s3.createMultipartUpload(request -> request.bucket(bucket).key(objectKey)
+                .contentType(contentType)).uploadId();
+        try {
+            List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+            int partNumber = 1;
+            for (long offset = 0; offset < size; offset += partSize, partNumber++) {
+                long length = Math.min(partSize, size - offset);
+                long partOffset = offset;
+                int number = partNumber;
+                parts.add(CompletableFuture.supplyAsync(() -> {
+                    // Each attempt (including SDK retries) reopens the file at the part's offset
+                    RequestBody body = RequestBody.fromContentProvider(() -> openSlice(source, partOffset, length),
+                            length, contentType);
+                    String etag = s3.uploadPart(request -> request.bucket(bucket).key(objectKey)
+                            .uploadId(uploadId).partNumber(number).contentLength(length), body).eTag();
+                    return CompletedPart.builder().partNumber(number).eTag(etag).build();
+                }, partUploads));
+            }
+            List<CompletedPart> completed = parts.stream().map(CompletableFuture::join).toList();
+            s3.completeMultipartUpload(request -> request.bucket(bucket).key(objectKey).uploadId(uploadId)
+                    .multipartUpload(upload -> upload.parts(completed)));
+        } catch (CompletionException | SdkException e) {
+            s3.abortMultipartUpload(request -> request.bucket(bucket).key(objectKey).uploadId(uploadId));
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            throw new IOException("Multipart upload of " + objectKey + " failed", cause);
+        }
+    }
+
+    private static InputStream openSlice(Path source, long offset, long length) {
+        try {
+            FileChannel channel = FileChannel.open(source, StandardOpenOption.READ);
+            try {
+                channel.position(offset);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            return new BoundedInputStream(Channels.newInputStream(channel), length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String objectKey(String key) {
+        if (!StorageBackend.isValidKey(key)) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        return prefix + key;
+    }
+}
@@ -0,0 +1,76 @@
+package com.delightdisplay.service.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Where uploaded files live. Keys are paths relative to the upload root, e.g.
+ * {@code products/<sha256>.jpg}, and map one-to-one to {@code /uploads/<key>} URLs.
+ * Missing keys surface as {@link java.nio.file.NoSuchFileException} from {@link #open}.
+ */
+public interface StorageBackend {
+
+    /**
+     * Stores {@code source} under {@code key}, replacing any existing object. The source file is
+     * consumed: it may be moved into place and must not be used afterwards.
+     */
+    void put(String key, Path source, String contentType) throws IOException;
+
+    Optional<StorageObject> stat(String key) throws IOException;
+
+    default boolean exists(String key) throws IOException {
+        return stat(key).isPresent();
+    }
+
+    default InputStream open(String key) throws IOException {
+        return open(key, 0, -1);
+    }
+
+    /**
+     * Streams bytes {@code start..end} inclusive; an {@code end} of -1 reads to the end.
+     */
+    InputStream open(String key, long start, long end) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    /**
+     * Moves an object to another key. Keys name their content, so an object already at
+     * {@code to} is taken to hold the same bytes and the source is simply removed.
+     *
+     * @throws java.nio.file.NoSuchFileException if nothing is stored at {@code from}
+     */
+    void move(String from, String to) throws IOException;
+
+    /**
+     * Visits every stored object, skipping reserved (dot-prefixed) entries. The visitor may be
+     * called from several threads at once.
+     */
+    void list(Consumer<StorageObject> visitor) throws IOException;
+
+    /**
+     * The local file holding the key, when the backend is a filesystem. Lets callers use
+     * sendfile and read images in place instead of streaming them.
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    /**
+     * Keys are relative, slash-separated and may not contain empty, {@code .} or {@code ..}
+     * segments; segments starting with a dot are reserved for in-flight temp files.
+     */
+    static boolean isValidKey(String key) {
+        if (key == null || key.isEmpty() || key.indexOf('\\') >= 0) {
+            return false;
+        }
+        for (String segment : key.split("/", -1)) {
+            if (segment.isEmpty() || segment.startsWith(".")) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
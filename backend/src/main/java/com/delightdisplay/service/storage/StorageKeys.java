@@ -0,0 +1,97 @@
+package com.delightdisplay.service.storage;
+
+/**
+ * Storage key layout. Uploads are stored two directory levels below their type directory,
+ * named after the first four characters of the file name, e.g.
+ * {@code products/3f/a9/3fa9...c2.jpg}, so no directory grows past a few hundred entries.
+ * Older uploads sit directly in the type directory ({@code products/3fa9...c2.jpg}) until the
+ * layout migration moves them; {@link #alternate(String)} maps between the two forms.
+ */
+public final class StorageKeys {
+    public static final String URL_MARKER = "/uploads/";
+    private static final int SHARD_WIDTH = 2;
+    private static final int SHARD_LEVELS = 2;
+    private static final int PREFIX_LENGTH = SHARD_WIDTH * SHARD_LEVELS;
+
+    private StorageKeys() {
+    }
+
+    public static String sharded(String subDir, String fileName) {
+        StringBuilder key = new StringBuilder(subDir.length() + fileName.length() + PREFIX_LENGTH + 3);
+        key.append(subDir).append('/');
+        for (int level = 0; level < SHARD_LEVELS; level++) {
+            key.append(fileName, level * SHARD_WIDTH, (level + 1) * SHARD_WIDTH).append('/');
+        }
+        return key.append(fileName).toString();
+    }
+
+    /**
+     * Whether the key uses the flat layout, {@code <type>/<file>}, and can be sharded.
+     */
+    public static boolean isLegacy(String key) {
+        int slash = key.indexOf('/');
+        return slash > 0 && key.indexOf('/', slash + 1) < 0 && shardable(key.substring(slash + 1));
+    }
+
+    public static boolean isSharded(String key) {
+        String[] segments = key.split("/");
+        if (segments.length != SHARD_LEVELS + 2 || !shardable(segments[segments.length - 1])) {
+            return false;
+        }
+        String fileName = segments[segments.length - 1];
+        for (int level = 0; level < SHARD_LEVELS; level++) {
+            if (!segments[level + 1].equals(fileName.substring(level * SHARD_WIDTH, (level + 1) * SHARD_WIDTH))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The same file under the other layout: sharded for a legacy key, flat for a sharded one,
+     * or null when the key fits neither.
+     */
+    public static String alternate(String key) {
+        if (isLegacy(key)) {
+            int slash = key.indexOf('/');
+            return sharded(key.substring(0, slash), key.substring(slash + 1));
+        }
+        if (isSharded(key)) {
+            return key.substring(0, key.indexOf('/') + 1) + key.substring(key.lastIndexOf('/') + 1);
+        }
+        return null;
+    }
+
+    /**
+     * The storage key an image column points at: whatever follows the first {@code /uploads/},
+     * up to any query string, so absolute and cache-busted URLs count too. Null when the value
+     * has no {@code /uploads/} part. The layout migration matches references the same way in SQL.
+     */
+    public static String fromUrl(String url) {
+        int marker = url.indexOf(URL_MARKER);
+        if (marker < 0) {
+            return null;
+        }
+        String key = url.substring(marker + URL_MARKER.length());
+        int query = key.indexOf('?');
+        return query >= 0 ? key.substring(0, query) : key;
+    }
+
+    // Sharded form of a key in either layout, for comparing references with stored objects
+    public static String canonical(String key) {
+        return isLegacy(key) ? alternate(key) : key;
+    }
+
+    // Hash and UUID names qualify; anything else (including reserved dot-prefixed names) stays put
+    private static boolean shardable(String fileName) {
+        if (fileName.length() <= PREFIX_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < PREFIX_LENGTH; i++) {
+            if (!Character.isLetterOrDigit(fileName.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,4 @@
+package com.delightdisplay.service.storage;
+
+public record StorageObject(String key, long length, long lastModified) {
+}
@@ -0,0 +1,110 @@
+package com.delightdisplay.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy-hitters summary. Tracks at most {@code capacity} keys; when full, the
+ * key with the smallest count is evicted and its count is inherited by the newcomer, so
+ * reported counts are upper bounds with an error of at most {@code total / capacity}.
+ * Not thread-safe; callers synchronize externally.
+ */
+public class SpaceSavingTopK<K> {
+    private final int capacity;
+    private final Map<K, Counter<K>> counters;
+
+    public SpaceSavingTopK(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public void add(K key, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        Counter<K> counter = counters.get(key);
+        if (counter != null) {
+            counter.count += weight;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(key, new Counter<>(key, weight, 0));
+            return;
+        }
+        Counter<K> min = null;
+        for (Counter<K> c : counters.values()) {
+            if (min == null || c.count < min.count) {
+                min = c;
+            }
+        }
+        counters.remove(min.key);
+        counters.put(key, new Counter<>(key, min.count + weight, min.count));
+    }
+
+    /**
+     * Folds another summary into this one. Keys missing from one side are assumed to have
+     * at most that side's minimum count, which keeps the merged counts as upper bounds.
+     */
+    public void merge(SpaceSavingTopK<K> other) {
+        long thisMin = minCount();
+        long otherMin = other.minCount();
+        Map<K, Counter<K>> merged = new HashMap<>(counters.size() + other.counters.size());
+        for (Counter<K> c : counters.values()) {
+            Counter<K> o = other.counters.get(c.key);
+            long count = c.count + (o != null ? o.count : otherMin);
+            long error = c.error + (o != null ? o.error : otherMin);
+            merged.put(c.key, new Counter<>(c.key, count, error));
+        }
+        for (Counter<K> o : other.counters.values()) {
+            if (!merged.containsKey(o.key)) {
+                merged.put(o.key, new Counter<>(o.key, o.count + thisMin, o.error + thisMin));
+            }
+        }
+        counters.clear();
+        merged.values().stream()
+                .sorted(Comparator.comparingLong((Counter<K> c) -> c.count).reversed())
+                .limit(capacity)
+                .forEach(c -> counters.put(c.key, c));
+    }
+
+    public List<Entry<K>> top(int k) {
+        List<Entry<K>> result = new ArrayList<>(Math.min(k, counters.size()));
+        counters.values().stream()
+                .sorted(Comparator.comparingLong((Counter<K> c) -> c.count).reversed())
+                .limit(k)
+                .forEach(c -> result.add(new Entry<>(c.key, c.count, c.error)));
+        return result;
+    }
+
+    private long minCount() {
+        if (counters.size() < capacity) {
+            return 0;
+        }
+        long min = Long.MAX_VALUE;
+        for (Counter<K> c : counters.values()) {
+            min = Math.min(min, c.count);
+        }
+        return min;
+    }
+
+    public record Entry<K>(K key, long count, long error) {
+    }
+
+    private static final class Counter<K> {
+        private final K key;
+        private long count;
+        private final long error;
+
+        private Counter(K key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.delightdisplay.util;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket implemented as a generic cell rate algorithm: the only state is the
+ * theoretical arrival time of the next request, advanced with a CAS. A bucket of
+ * {@code capacity} tokens refills completely over {@code refillPeriod}.
+ */
+public class TokenBucket {
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    public TokenBucket(int capacity, Duration refillPeriod) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.emissionIntervalNanos = refillPeriod.toNanos() / capacity;
+        this.burstToleranceNanos = emissionIntervalNanos * (capacity - 1);
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Takes one token if available.
+     *
+     * @return 0 if the token was granted, otherwise the nanoseconds until one becomes available
+     */
+    public long tryConsume() {
+        long now = System.nanoTime();
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long base = arrival - now > 0 ? arrival : now;
+            long waitNanos = base - now - burstToleranceNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, base + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.delightdisplay.config;
+
+import com.delightdisplay.config.ReplicaRoutingDataSource.Route;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTest {
+
+    private AnnotationConfigApplicationContext context;
+    private ReplicaRoutingDataSource routing;
+    private RoutedCalls calls;
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigApplicationContext(TestConfig.class);
+        routing = context.getBean(ReplicaRoutingDataSource.class);
+        calls = context.getBean(RoutedCalls.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        context.close();
+    }
+
+    @Test
+    void routesToPrimaryOutsideTransactions() {
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(Route.PRIMARY);
+    }
+
+    @Test
+    void routesReadWriteTransactionsToPrimary() {
+        assertThat(calls.readWrite()).isEqualTo(Route.PRIMARY);
+    }
+
+    @Test
+    void routesReadOnlyTransactionsToReplica() {
+        assertThat(calls.readOnly()).isEqualTo(Route.REPLICA);
+    }
+
+    @Test
+    void routesReportingQueriesToReplica() {
+        signIn("analyst@example.com");
+        assertThat(calls.reporting()).isEqualTo(Route.REPLICA);
+    }
+
+    @Test
+    void pinsRecentWritersToPrimary() {
+        signIn("alice@example.com");
+        calls.readWrite();
+
+        assertThat(calls.readOnly()).isEqualTo(Route.PRIMARY);
+        assertThat(calls.reporting()).isEqualTo(Route.PRIMARY);
+
+        signIn("bob@example.com");
+        assertThat(calls.readOnly()).isEqualTo(Route.REPLICA);
+    }
+
+    @Test
+    void anonymousWritesDoNotPinAnyone() {
+        calls.readWrite();
+
+        assertThat(calls.readOnly()).isEqualTo(Route.REPLICA);
+    }
+
+    private static void signIn(String email) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(email, null, List.of()));
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    static class TestConfig {
+
+        @Bean
+        ReplicaRoutingDataSource routingDataSource() throws Exception {
+            ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(
+                    mock(DataSource.class), mock(DataSource.class), Duration.ofMinutes(1));
+            routing.afterPropertiesSet();
+            return routing;
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager() throws Exception {
+            DataSource dataSource = mock(DataSource.class);
+            when(dataSource.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+            when(dataSource.getConnection(any(), any())).thenAnswer(invocation -> mock(Connection.class));
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        RoutedCalls routedCalls(ReplicaRoutingDataSource routingDataSource) {
+            return new RoutedCalls(routingDataSource);
+        }
+    }
+
+    static class RoutedCalls {
+        private final ReplicaRoutingDataSource routing;
+
+        RoutedCalls(ReplicaRoutingDataSource routing) {
+            this.routing = routing;
+        }
+
+        @Transactional
+        public Object readWrite() {
+            return routing.determineCurrentLookupKey();
+        }
+
+        @Transactional(readOnly = true)
+        public Object readOnly() {
+            return routing.determineCurrentLookupKey();
+        }
+
+        @ReportingQuery
+        public Object reporting() {
+            return routing.determineCurrentLookupKey();
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.delightdisplay.service.storage;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal in-process stand-in for an S3-compatible store, serving the path-style subset of the
+ * API {@link S3StorageBackend} uses: put, head, ranged get, delete, copy, multipart upload and
+ * ListObjectsV2. Objects live in memory; authentication is not checked.
+ */
+class InMemoryS3Server implements AutoCloseable {
+    private static final Pattern PART_NUMBER = Pattern.compile("<PartNumber>(\\d+)</PartNumber>");
+
+    record StoredObject(byte[] content, String contentType, String etag, Instant lastModified, int parts) {
+    }
+
+    private final HttpServer server;
+    private final String bucket;
+    private final ConcurrentSkipListMap<String, StoredObject> objects = new ConcurrentSkipListMap<>();
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+
+    InMemoryS3Server(String bucket) throws IOException {
+        this.bucket = bucket;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    URI endpoint() {
+        return URI.create("http://localhost:" + server.getAddress().getPort());
+    }
+
+    Optional<StoredObject> object(String key) {
+        return Optional.ofNullable(objects.get(key));
+    }
+
+    Map<String, StoredObject> objects() {
+        return objects;
+    }
+
+    int openMultipartUploads() {
+        return uploads.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            String bucketPrefix = "/" + bucket;
+            if (!path.equals(bucketPrefix) && !path.startsWith(bucketPrefix + "/")) {
+                error(exchange, 404, "NoSuchBucket");
+                return;
+            }
+            String key = path.length() > bucketPrefix.length() + 1 ? path.substring(bucketPrefix.length() + 1) : "";
+            String method = exchange.getRequestMethod();
+
+            if (key.isEmpty()) {
+                if (method.equals("GET") && "2".equals(query.get("list-type"))) {
+                    list(exchange, query.getOrDefault("prefix", ""));
+                } else {
+                    error(exchange, 501, "NotImplemented");
+                }
+                return;
+            }
+            switch (method) {
+                case "PUT" -> {
+                    if (query.containsKey("uploadId")) {
+                        uploadPart(exchange, query.get("uploadId"), Integer.parseInt(query.get("partNumber")));
+                    } else if (exchange.getRequestHeaders().containsKey("x-amz-copy-source")) {
+                        copy(exchange, key);
+                    } else {
+                        put(exchange, key);
+                    }
+                }
+                case "POST" -> {
+                    if (query.containsKey("uploads")) {
+                        createMultipart(exchange, key);
+                    } else {
+                        completeMultipart(exchange, key, query.get("uploadId"));
+                    }
+                }
+                case "HEAD" -> head(exchange, key);
+                case "GET" -> get(exchange, key);
+                case "DELETE" -> {
+                    if (query.containsKey("uploadId")) {
+                        uploads.remove(query.get("uploadId"));
+                    } else {
+                        objects.remove(key);
+                    }
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                default -> error(exchange, 405, "MethodNotAllowed");
+            }
+        }
+    }
+
+    private void put(HttpExchange exchange, String key) throws IOException {
+        byte[] content = body(exchange);
+        String contentType = Optional.ofNullable(exchange.getRequestHeaders().getFirst("Content-Type"))
+                .orElse("binary/octet-stream");
+        StoredObject object = new StoredObject(content, contentType, "\"" + md5(content) + "\"", now(), 1);
+        objects.put(key, object);
+        exchange.getResponseHeaders().set("ETag", object.etag());
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void copy(HttpExchange exchange, String key) throws IOException {
+        String source = URLDecoder.decode(exchange.getRequestHeaders().getFirst("x-amz-copy-source"),
+                StandardCharsets.UTF_8);
+        source = source.startsWith("/") ? source.substring(1) : source;
+        StoredObject original = source.startsWith(bucket + "/") ? objects.get(source.substring(bucket.length() + 1))
+                : null;
+        if (original == null) {
+            error(exchange, 404, "NoSuchKey");
+            return;
+        }
+        StoredObject copy = new StoredObject(original.content(), original.contentType(), original.etag(), now(),
+                original.parts());
+        objects.put(key, copy);
+        xml(exchange, 200, "<CopyObjectResult><ETag>" + escape(copy.etag()) + "</ETag><LastModified>"
+                + copy.lastModified() + "</LastModified></CopyObjectResult>");
+    }
+
+    private void head(HttpExchange exchange, String key) throws IOException {
+        StoredObject object = objects.get(key);
+        if (object == null) {
+            // Like S3, a HEAD miss has no error body
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        objectHeaders(exchange.getResponseHeaders(), object);
+        exchange.getResponseHeaders().set("Content-Length", Long.toString(object.content().length));
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void get(HttpExchange exchange, String key) throws IOException {
+        StoredObject object = objects.get(key);
+        if (object == null) {
+            error(exchange, 404, "NoSuchKey");
+            return;
+        }
+        byte[] content = object.content();
+        int start = 0;
+        int end = content.length - 1;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null && range.startsWith("bytes=")) {
+            String[] bounds = range.substring("bytes=".length()).split("-", -1);
+            start = Integer.parseInt(bounds[0]);
+            if (!bounds[1].isEmpty()) {
+                end = Math.min(end, Integer.parseInt(bounds[1]));
+            }
+            if (start > end) {
+                error(exchange, 416, "InvalidRange");
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+        }
+        objectHeaders(exchange.getResponseHeaders(), object);
+        int length = end - start + 1;
+        exchange.sendResponseHeaders(range != null ? 206 : 200, length == 0 ? -1 : length);
+        exchange.getResponseBody().write(content, start, length);
+    }
+
+    private void createMultipart(HttpExchange exchange, String key) throws IOException {
+        body(exchange);
+        String uploadId = UUID.randomUUID().toString();
+        uploads.put(uploadId, new ConcurrentHashMap<>());
+        xml(exchange, 200, "<InitiateMultipartUploadResult><Bucket>" + bucket + "</Bucket><Key>" + escape(key)
+                + "</Key><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+    }
+
+    private void uploadPart(HttpExchange exchange, String uploadId, int partNumber) throws IOException {
+        Map<Integer, byte[]> parts = uploads.get(uploadId);
+        byte[] content = body(exchange);
+        if (parts == null) {
+            error(exchange, 404, "NoSuchUpload");
+            return;
+        }
+        parts.put(partNumber, content);
+        exchange.getResponseHeaders().set("ETag", "\"" + md5(content) + "\"");
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void completeMultipart(HttpExchange exchange, String key, String uploadId) throws IOException {
+        String request = new String(body(exchange), StandardCharsets.UTF_8);
+        Map<Integer, byte[]> parts = uploadId != null ? uploads.remove(uploadId) : null;
+        if (parts == null) {
+            error(exchange, 404, "NoSuchUpload");
+            return;
+        }
+        ByteArrayOutputStream assembled = new ByteArrayOutputStream();
+        int count = 0;
+        Matcher matcher = PART_NUMBER.matcher(request);
+        while (matcher.find()) {
+            byte[] part = parts.get(Integer.parseInt(matcher.group(1)));
+            if (part == null) {
+                error(exchange, 400, "InvalidPart");
+                return;
+            }
+            assembled.write(part);
+            count++;
+        }
+        byte[] content = assembled.toByteArray();
+        StoredObject object = new StoredObject(content, "binary/octet-stream",
+                "\"" + md5(content) + "-" + count + "\"", now(), count);
+        objects.put(key, object);
+        xml(exchange, 200, "<CompleteMultipartUploadResult><Bucket>" + bucket + "</Bucket><Key>" + escape(key)
+                + "</Key><ETag>" + escape(object.etag()) + "</ETag></CompleteMultipartUploadResult>");
+    }
+
+    private void list(HttpExchange exchange, String prefix) throws IOException {
+        StringBuilder xml = new StringBuilder("<ListBucketResult><Name>").append(bucket).append("</Name><Prefix>")
+                .append(escape(prefix)).append("</Prefix><IsTruncated>false</IsTruncated>");
+        int count = 0;
+        for (Map.Entry<String, StoredObject> entry : objects.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            StoredObject object = entry.getValue();
+            xml.append("<Contents><Key>").append(escape(entry.getKey())).append("</Key><LastModified>")
+                    .append(object.lastModified()).append("</LastModified><ETag>").append(escape(object.etag()))
+                    .append("</ETag><Size>").append(object.content().length)
+                    .append("</Size><StorageClass>STANDARD</StorageClass></Contents>");
+            count++;
+        }
+        xml.append("<KeyCount>").append(count).append("</KeyCount></ListBucketResult>");
+        xml(exchange, 200, xml.toString());
+    }
+
+    private static void objectHeaders(Headers headers, StoredObject object) {
+        headers.set("ETag", object.etag());
+        headers.set("Content-Type", object.contentType());
+        headers.set("Last-Modified",
+                DateTimeFormatter.RFC_1123_DATE_TIME.format(object.lastModified().atOffset(ZoneOffset.UTC)));
+        headers.set("Accept-Ranges", "bytes");
+    }
+
+    private static void error(HttpExchange exchange, int status, String code) throws IOException {
+        xml(exchange, status, "<Error><Code>" + code + "</Code><Message>" + code + "</Message></Error>");
+    }
+
+    private static void xml(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    // Request bodies may use the SDK's aws-chunked framing: <hex size>;chunk-signature=...\r\n<data>\r\n
+    private static byte[] body(HttpExchange exchange) throws IOException {
+        byte[] raw = exchange.getRequestBody().readAllBytes();
+        Headers headers = exchange.getRequestHeaders();
+        String sha = headers.getFirst("x-amz-content-sha256");
+        String encoding = headers.getFirst("Content-Encoding");
+        boolean chunked = (sha != null && sha.startsWith("STREAMING-"))
+                || (encoding != null && encoding.contains("aws-chunked"));
+        return chunked ? decodeAwsChunked(raw) : raw;
+    }
+
+    private static byte[] decodeAwsChunked(byte[] raw) {
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream(raw.length);
+        int position = 0;
+        while (position < raw.length) {
+            int lineEnd = position;
+            while (lineEnd + 1 < raw.length && !(raw[lineEnd] == '\r' && raw[lineEnd + 1] == '\n')) {
+                lineEnd++;
+            }
+            String header = new String(raw, position, lineEnd - position, StandardCharsets.US_ASCII);
+            int semicolon = header.indexOf(';');
+            int size = Integer.parseInt((semicolon >= 0 ? header.substring(0, semicolon) : header).trim(), 16);
+            if (size == 0) {
+                break;
+            }
+            int dataStart = lineEnd + 2;
+            decoded.write(raw, dataStart, size);
+            position = dataStart + size + 2;
+        }
+        return decoded.toByteArray();
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals >= 0 ? pair.substring(0, equals) : pair, StandardCharsets.UTF_8);
+            String value = equals >= 0 ? URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8) : "";
+            params.put(name, value);
+        }
+        return params;
+    }
+
+    private static String md5(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
@@ -0,0 +1,198 @@
+package com.delightdisplay.service.storage;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs {@link S3StorageBackend} against {@link InMemoryS3Server} over real HTTP, so request
+ * signing, multipart assembly, ranges and error mapping go through the actual SDK client.
+ */
+class S3StorageBackendTest {
+    private static final String BUCKET = "uploads";
+
+    private static InMemoryS3Server server;
+
+    @TempDir
+    Path tempDir;
+
+    private S3StorageBackend backend;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = new InMemoryS3Server(BUCKET);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        server.objects().clear();
+        backend = backend("");
+    }
+
+    @Test
+    void putStoresObjectAndConsumesSource() throws IOException {
+        Path source = file("small.jpg", bytes(1024));
+
+        backend.put("products/ab/cd/abcd.jpg", source, "image/jpeg");
+
+        assertThat(source).doesNotExist();
+        assertThat(server.object("products/ab/cd/abcd.jpg")).hasValueSatisfying(object -> {
+            assertThat(object.content()).hasSize(1024);
+            assertThat(object.contentType()).isEqualTo("image/jpeg");
+            assertThat(object.parts()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void largeFilesAreUploadedInParts() throws IOException {
+        byte[] content = bytes(11 * 1024 * 1024 + 17);
+
+        backend.put("products/big.png", file("big.png", content), "image/png");
+
+        assertThat(server.object("products/big.png")).hasValueSatisfying(object -> {
+            assertThat(object.parts()).isEqualTo(3);
+            assertThat(object.content()).isEqualTo(content);
+        });
+        assertThat(server.openMultipartUploads()).isZero();
+    }
+
+    @Test
+    void statReportsLengthAndMissingKeys() throws IOException {
+        backend.put("categories/cat.gif", file("cat.gif", bytes(300)), "image/gif");
+
+        Optional<StorageObject> stat = backend.stat("categories/cat.gif");
+        assertThat(stat).hasValueSatisfying(object -> {
+            assertThat(object.key()).isEqualTo("categories/cat.gif");
+            assertThat(object.length()).isEqualTo(300);
+            assertThat(object.lastModified()).isPositive();
+        });
+        // HEAD misses come back as a bare 404 without an error code
+        assertThat(backend.stat("categories/missing.gif")).isEmpty();
+        assertThat(backend.exists("categories/missing.gif")).isFalse();
+    }
+
+    @Test
+    void openStreamsWholeObjectsAndByteRanges() throws IOException {
+        byte[] content = bytes(1000);
+        backend.put("products/range.jpg", file("range.jpg", content), "image/jpeg");
+
+        assertThat(read(backend.open("products/range.jpg"))).isEqualTo(content);
+        assertThat(read(backend.open("products/range.jpg", 10, 19))).isEqualTo(slice(content, 10, 20));
+        assertThat(read(backend.open("products/range.jpg", 990, -1))).isEqualTo(slice(content, 990, 1000));
+        assertThat(read(backend.open("products/range.jpg", 0, 0))).isEqualTo(slice(content, 0, 1));
+    }
+
+    @Test
+    void openMissingKeyThrowsNoSuchFile() {
+        assertThatThrownBy(() -> backend.open("products/missing.jpg"))
+                .isInstanceOf(NoSuchFileException.class)
+                .hasMessage("products/missing.jpg");
+    }
+
+    @Test
+    void moveCopiesThenRemovesSource() throws IOException {
+        byte[] content = bytes(512);
+        backend.put("products/flat.jpg", file("flat.jpg", content), "image/jpeg");
+
+        backend.move("products/flat.jpg", "products/fl/at/flat.jpg");
+
+        assertThat(server.object("products/flat.jpg")).isEmpty();
+        assertThat(server.object("products/fl/at/flat.jpg")).hasValueSatisfying(
+                object -> assertThat(object.content()).isEqualTo(content));
+    }
+
+    @Test
+    void moveOntoExistingTargetOnlyRemovesSource() throws IOException {
+        backend.put("products/flat.jpg", file("flat.jpg", bytes(64)), "image/jpeg");
+        backend.put("products/fl/at/flat.jpg", file("sharded.jpg", bytes(64)), "image/jpeg");
+
+        backend.move("products/flat.jpg", "products/fl/at/flat.jpg");
+
+        assertThat(server.object("products/flat.jpg")).isEmpty();
+        assertThat(server.object("products/fl/at/flat.jpg")).isPresent();
+    }
+
+    @Test
+    void moveMissingSourceThrowsNoSuchFile() throws IOException {
+        assertThatThrownBy(() -> backend.move("products/gone.jpg", "products/go/ne/gone.jpg"))
+                .isInstanceOf(NoSuchFileException.class);
+
+        backend.put("products/go/ne/gone.jpg", file("gone.jpg", bytes(8)), "image/jpeg");
+        assertThatThrownBy(() -> backend.move("products/gone.jpg", "products/go/ne/gone.jpg"))
+                .isInstanceOf(NoSuchFileException.class);
+    }
+
+    @Test
+    void deleteRemovesObject() throws IOException {
+        backend.put("users/avatar.png", file("avatar.png", bytes(32)), "image/png");
+
+        backend.delete("users/avatar.png");
+
+        assertThat(backend.exists("users/avatar.png")).isFalse();
+    }
+
+    @Test
+    void listVisitsObjectsBelowPrefixWithRelativeKeys() throws IOException {
+        S3StorageBackend prefixed = backend("shop");
+        prefixed.put("products/a.jpg", file("a.jpg", bytes(10)), "image/jpeg");
+        prefixed.put("products/ab/cd/abcd.jpg", file("b.jpg", bytes(20)), "image/jpeg");
+        backend.put("other/c.jpg", file("c.jpg", bytes(30)), "image/jpeg");
+
+        List<StorageObject> listed = Collections.synchronizedList(new ArrayList<>());
+        prefixed.list(listed::add);
+
+        assertThat(server.object("shop/products/a.jpg")).isPresent();
+        assertThat(listed).extracting(StorageObject::key)
+                .containsExactlyInAnyOrder("products/a.jpg", "products/ab/cd/abcd.jpg");
+        assertThat(listed).extracting(StorageObject::length).containsExactlyInAnyOrder(10L, 20L);
+    }
+
+    private S3StorageBackend backend(String prefix) {
+        return new S3StorageBackend(BUCKET, "us-east-1", server.endpoint().toString(), true, "test", "test",
+                prefix, DataSize.ofMegabytes(1), DataSize.ofMegabytes(5), 2);
+    }
+
+    private Path file(String name, byte[] content) throws IOException {
+        return Files.write(tempDir.resolve(name), content);
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] slice(byte[] content, int from, int to) {
+        byte[] slice = new byte[to - from];
+        System.arraycopy(content, from, slice, 0, slice.length);
+        return slice;
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+}
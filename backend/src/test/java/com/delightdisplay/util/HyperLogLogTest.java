@@ -0,0 +1,69 @@
+package com.delightdisplay.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+    @Test
+    void emptySketchEstimatesZero() {
+        assertThat(new HyperLogLog().estimate()).isZero();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 1_000, 10_000, 100_000, 1_000_000})
+    void estimatesKnownCardinalities(int cardinality) {
+        HyperLogLog hll = new HyperLogLog();
+        for (long id = 1; id <= cardinality; id++) {
+            hll.add(id);
+        }
+
+        // Three standard errors at precision 12 (about 1.6% each)
+        assertThat((double) hll.estimate()).isCloseTo(cardinality, within(cardinality * 0.05 + 1));
+    }
+
+    @Test
+    void ignoresDuplicates() {
+        HyperLogLog hll = new HyperLogLog();
+        for (int round = 0; round < 5; round++) {
+            for (long id = 1; id <= 5_000; id++) {
+                hll.add(id);
+            }
+        }
+
+        assertThat((double) hll.estimate()).isCloseTo(5_000, within(250.0));
+    }
+
+    @Test
+    void mergeEstimatesTheUnion() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        for (long id = 0; id < 60_000; id++) {
+            first.add(id);
+        }
+        for (long id = 40_000; id < 100_000; id++) {
+            second.add(id);
+        }
+
+        first.merge(second);
+
+        assertThat((double) first.estimate()).isCloseTo(100_000, within(5_000.0));
+    }
+
+    @Test
+    void rejectsMergingDifferentPrecisions() {
+        assertThatThrownBy(() -> new HyperLogLog(12).merge(new HyperLogLog(10)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsPrecisionOutOfRange() {
+        assertThatThrownBy(() -> new HyperLogLog(3)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HyperLogLog(17)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
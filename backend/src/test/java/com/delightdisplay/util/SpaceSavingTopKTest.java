@@ -0,0 +1,100 @@
+package com.delightdisplay.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SpaceSavingTopKTest {
+
+    @Test
+    void countsExactlyWhileWithinCapacity() {
+        SpaceSavingTopK<String> topK = new SpaceSavingTopK<>(4);
+        topK.add("a", 5);
+        topK.add("b", 2);
+        topK.add("a", 1);
+        topK.add("c", 3);
+
+        assertThat(topK.top(10)).containsExactly(
+                new SpaceSavingTopK.Entry<>("a", 6, 0),
+                new SpaceSavingTopK.Entry<>("c", 3, 0),
+                new SpaceSavingTopK.Entry<>("b", 2, 0));
+    }
+
+    @Test
+    void ignoresNonPositiveWeights() {
+        SpaceSavingTopK<String> topK = new SpaceSavingTopK<>(2);
+        topK.add("a", 0);
+        topK.add("b", -3);
+
+        assertThat(topK.top(10)).isEmpty();
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThatThrownBy(() -> new SpaceSavingTopK<>(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void staysWithinErrorBoundOnSkewedStream() {
+        int capacity = 50;
+        SpaceSavingTopK<Integer> topK = new SpaceSavingTopK<>(capacity);
+        Map<Integer, Long> actual = new HashMap<>();
+        long total = feedSkewed(topK, actual, new Random(42), 100_000);
+
+        assertBounds(topK.top(capacity), actual, total / capacity);
+        // Every key above total / capacity is guaranteed to be tracked
+        List<Integer> tracked = topK.top(capacity).stream().map(SpaceSavingTopK.Entry::key).toList();
+        actual.forEach((key, count) -> {
+            if (count > total / capacity) {
+                assertThat(tracked).contains(key);
+            }
+        });
+        assertThat(topK.top(1).get(0).key()).isEqualTo(0);
+    }
+
+    @Test
+    void mergedSummaryKeepsUpperBounds() {
+        int capacity = 50;
+        SpaceSavingTopK<Integer> first = new SpaceSavingTopK<>(capacity);
+        SpaceSavingTopK<Integer> second = new SpaceSavingTopK<>(capacity);
+        Map<Integer, Long> actual = new HashMap<>();
+        long total = feedSkewed(first, actual, new Random(1), 50_000)
+                + feedSkewed(second, actual, new Random(2), 50_000);
+
+        first.merge(second);
+
+        List<SpaceSavingTopK.Entry<Integer>> top = first.top(capacity);
+        assertThat(top).hasSizeLessThanOrEqualTo(capacity);
+        assertBounds(top, actual, 2 * (total / capacity));
+    }
+
+    // Roughly Zipfian over 1000 keys: key 0 is the most frequent
+    private static long feedSkewed(SpaceSavingTopK<Integer> topK, Map<Integer, Long> actual, Random random,
+            int events) {
+        long total = 0;
+        for (int i = 0; i < events; i++) {
+            int key = (int) Math.floor(Math.pow(1000, random.nextDouble())) - 1;
+            long weight = 1 + random.nextInt(3);
+            topK.add(key, weight);
+            actual.merge(key, weight, Long::sum);
+            total += weight;
+        }
+        return total;
+    }
+
+    private static void assertBounds(List<SpaceSavingTopK.Entry<Integer>> entries, Map<Integer, Long> actual,
+            long maxError) {
+        for (SpaceSavingTopK.Entry<Integer> entry : entries) {
+            long trueCount = actual.getOrDefault(entry.key(), 0L);
+            assertThat(entry.count()).isGreaterThanOrEqualTo(trueCount);
+            assertThat(entry.count() - entry.error()).isLessThanOrEqualTo(trueCount);
+            assertThat(entry.count() - trueCount).isLessThanOrEqualTo(maxError);
+        }
+    }
+}
@@ -2,9 +2,12 @@ const API_BASE_URL = import.meta.env.VITE_API_URL || 'http://localhost:8081/api'
 
 class ApiService {
   private token: string | null = null;
+  private refreshToken: string | null = null;
+  private refreshing: Promise<boolean> | null = null;
 
   constructor() {
     this.token = localStorage.getItem('token');
+    this.refreshToken = localStorage.getItem('refreshToken');
   }
 
   setToken(token: string | null) {
@@ -16,11 +19,50 @@ class ApiService {
     }
   }
 
+  setRefreshToken(refreshToken: string | null) {
+    this.refreshToken = refreshToken;
+    if (refreshToken) {
+      localStorage.setItem('refreshToken', refreshToken);
+    } else {
+      localStorage.removeItem('refreshToken');
+    }
+  }
+
   getToken() {
     return this.token;
   }
 
-  private async request<T>(endpoint: string, options: RequestInit = {}): Promise<T> {
+  // Access tokens are short-lived; concurrent callers share a single refresh
+  private tryRefresh(): Promise<boolean> {
+    if (!this.refreshToken) {
+      return Promise.resolve(false);
+    }
+    if (!this.refreshing) {
+      this.refreshing = fetch(`${API_BASE_URL}/auth/refresh`, {
+        method: 'POST',
+        headers: { 'Content-Type': 'application/json' },
+        body: JSON.stringify({ refreshToken: this.refreshToken }),
+      })
+        .then(async (response) => {
+          if (!response.ok) {
+            this.setToken(null);
+            this.setRefreshToken(null);
+            return false;
+          }
+          const data: AuthResponse = await response.json();
+          this.setToken(data.token);
+          this.setRefreshToken(data.refreshToken);
+          return true;
+        })
+        .catch(() => false)
+        .finally(() => {
+          this.refreshing = null;
+        });
+    }
+    return this.refreshing;
+  }
+
+  private async request<T>(endpoint: string, options: RequestInit = {}, retry = true): Promise<T> {
     const headers: HeadersInit = {
       'Content-Type': 'application/json',
       ...options.headers,
@@ -35,6 +77,10 @@ class ApiService {
       headers,
     });
 
+    if ((response.status === 401 || response.status === 403) && retry && this.token && await this.tryRefresh()) {
+      return this.request<T>(endpoint, options, false);
+    }
+
     if (!response.ok) {
       const error = await response.json().catch(() => ({ message: 'Request failed' }));
       throw new Error(error.message || `HTTP error! status: ${response.status}`);
@@ -47,6 +93,22 @@ class ApiService {
     return response.json();
   }
 
+  // Like request(), for multipart bodies; init() is called again for the retry so the body is rebuilt
+  private async authorizedFetch(url: string, init: () => RequestInit, retry = true): Promise<Response> {
+    const options = init();
+    const headers = new Headers(options.headers);
+    if (this.token) {
+      headers.set('Authorization', `Bearer ${this.token}`);
+    }
+
+    const response = await fetch(url, { ...options, headers });
+
+    if ((response.status === 401 || response.status === 403) && retry && this.token && await this.tryRefresh()) {
+      return this.authorizedFetch(url, init, false);
+    }
+    return response;
+  }
+
   // Auth
   async login(email: string, password: string) {
     const data = await this.request<AuthResponse>('/auth/login', {
@@ -54,6 +116,7 @@ class ApiService {
       body: JSON.stringify({ email, password }),
     });
     this.setToken(data.token);
+    this.setRefreshToken(data.refreshToken);
     return data;
   }
 
@@ -63,11 +126,24 @@ class ApiService {
       body: JSON.stringify({ name, email, password }),
     });
     this.setToken(data.token);
+    this.setRefreshToken(data.refreshToken);
     return data;
   }
 
   logout() {
+    if (this.token || this.refreshToken) {
+      const headers: Record<string, string> = { 'Content-Type': 'application/json' };
+      if (this.token) {
+        headers['Authorization'] = `Bearer ${this.token}`;
+      }
+      fetch(`${API_BASE_URL}/auth/logout`, {
+        method: 'POST',
+        headers,
+        body: JSON.stringify({ refreshToken: this.refreshToken }),
+      }).catch(() => undefined);
+    }
     this.setToken(null);
+    this.setRefreshToken(null);
   }
 
   // Password Reset
@@ -87,26 +163,68 @@ class ApiService {
 
   // File Upload
   async uploadFile(file: File, type: 'product' | 'category' | 'avatar') {
-    const formData = new FormData();
-    formData.append('file', file);
+    // Known image types are PUT as the raw body to a signed, single-use upload URL; the server
+    // reads it without holding a request thread while a slow connection trickles it in
+    const streamable = ['image/jpeg', 'image/png', 'image/gif', 'image/webp'].includes(file.type);
+    let response: Response;
+    if (streamable) {
+      const ticket = await this.request<{ uploadUrl: string; expiresAt: string; maxSize: number }>(
+        `/files/tickets/${type}`,
+        { method: 'POST' },
+      );
+      response = await fetch(`${API_BASE_URL.replace(/\/api$/, '')}${ticket.uploadUrl}`, {
+        method: 'PUT',
+        headers: { 'Content-Type': file.type },
+        body: file,
+      });
+    } else {
+      response = await this.authorizedFetch(`${API_BASE_URL}/files/upload/${type}`, () => {
+        const formData = new FormData();
+        formData.append('file', file);
+        return { method: 'POST', body: formData };
+      });
+    }
     
-    const headers: HeadersInit = {};
-    if (this.token) {
-      headers['Authorization'] = `Bearer ${this.token}`;
+    if (!response.ok) {
+      const error = await response.json().catch(() => ({ message: 'Upload failed' }));
+      throw new Error(error.message || 'Upload failed');
     }
     
-    const response = await fetch(`${API_BASE_URL}/files/upload/${type}`, {
-      method: 'POST',
-      headers,
-      body: formData,
+    return response.json() as Promise<{
+      url: string;
+      variants?: Record<'thumb' | 'card' | 'detail', string>;
+      width?: number;
+      height?: number;
+    }>;
+  }
+
+  async uploadFiles(files: File[], type: 'product' | 'category' | 'avatar') {
+    const response = await this.authorizedFetch(`${API_BASE_URL}/files/upload/${type}/batch`, () => {
+      const formData = new FormData();
+      files.forEach(file => formData.append('files', file));
+      return { method: 'POST', body: formData };
     });
-    
+
     if (!response.ok) {
       const error = await response.json().catch(() => ({ message: 'Upload failed' }));
       throw new Error(error.message || 'Upload failed');
     }
-    
-    return response.json() as Promise<{ url: string }>;
+
+    return response.json() as Promise<{
+      files: {
+        index: number;
+        filename: string;
+        file?: {
+          url: string;
+          variants?: Record<'thumb' | 'card' | 'detail', string>;
+          width?: number;
+          height?: number;
+        };
+        error?: string;
+      }[];
+      succeeded: number;
+      failed: number;
+    }>;
   }
 
   // Users
@@ -368,6 +486,8 @@ class ApiService {
 export interface AuthResponse {
   token: string;
   type: string;
+  refreshToken: string;
+  expiresIn: number;
   id: string;
   email: string;
   name: string;